@@ -0,0 +1,65 @@
+package de.mcjunky33.core;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Colour work done for one HUD frame. {@code perCharacter} is what the overlay used to do every
+ * frame, {@code tableLookup} is what {@code HudText} does when the animation phase moves on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GradientBenchmark {
+
+    private static final int STEPS = 256;
+
+    @Param({"1", "2", "4", "16"})
+    public int colors;
+
+    @Param({"2", "10", "24"})
+    public int length;
+
+    private List<Integer> colorList;
+    private int[] colorArray;
+    private int[] table;
+    private double offset;
+
+    @Setup
+    public void setup() {
+        colorList = new ArrayList<>();
+        for (int i = 0; i < colors; i++) colorList.add(0x101010 * (i + 1) & 0xFFFFFF);
+        colorArray = Gradient.toArray(colorList);
+        table = Gradient.table(colorArray, STEPS);
+        offset = 0.37;
+    }
+
+    @Benchmark
+    public void perCharacter(Blackhole bh) {
+        for (int i = 0; i < length; i++) bh.consume(legacyInterpolate(colorList, (float) (((float) i / length + offset) % 1.0)));
+    }
+
+    @Benchmark
+    public void tableLookup(Blackhole bh) {
+        int phase = (int) (offset * STEPS);
+        for (int i = 0; i < length; i++) bh.consume(table[(i * STEPS / length + phase) % STEPS]);
+    }
+
+    @Benchmark
+    public int[] buildTable() {
+        return Gradient.table(colorArray, STEPS);
+    }
+
+    private static int legacyInterpolate(List<Integer> colors, float ratio) {
+        if (colors.size() == 1) return colors.get(0);
+        float section = ratio * colors.size();
+        int i = (int)section % colors.size(), next = (i+1) % colors.size();
+        float t = section - (int)section;
+        int c1 = colors.get(i), c2 = colors.get(next);
+        return ((int)(((c1>>16)&0xFF)*(1-t)+((c2>>16)&0xFF)*t)<<16) | ((int)(((c1>>8)&0xFF)*(1-t)+((c2>>8)&0xFF)*t)<<8) | (int)((c1&0xFF)*(1-t)+(c2&0xFF)*t);
+    }
+}
@@ -0,0 +1,20 @@
+package de.mcjunky33.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimeFormatBenchmark {
+
+    // 0s, 59s, 59m 59s, 23h 59m 59s, 1y 1M 1w 1d 1h 1m 1s
+    @Param({"0", "59", "3599", "86399", "34822861"})
+    public long seconds;
+
+    @Benchmark
+    public String format() {
+        return TimeFormat.format(seconds);
+    }
+}
@@ -0,0 +1,13 @@
+package de.mcjunky33.core;
+
+/**
+ * Source of monotonic nanosecond time for the timer logic. The game uses {@link #SYSTEM}, the
+ * simulator and benchmarks drive their own.
+ */
+@FunctionalInterface
+public interface Clock {
+
+    Clock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
@@ -0,0 +1,30 @@
+package de.mcjunky33.core;
+
+import java.util.List;
+
+public final class Gradient {
+
+    private Gradient() {}
+
+    public static int[] toArray(List<Integer> colors) {
+        int[] res = new int[colors.size()];
+        for (int i = 0; i < res.length; i++) res[i] = colors.get(i);
+        return res;
+    }
+
+    /** Samples the looping gradient through {@code colors} at {@code steps} evenly spaced points. */
+    public static int[] table(int[] colors, int steps) {
+        int[] res = new int[steps];
+        for (int i = 0; i < steps; i++) res[i] = interpolate(colors, (float) i / steps);
+        return res;
+    }
+
+    static int interpolate(int[] colors, float ratio) {
+        if (colors.length == 1) return colors[0];
+        float section = ratio * colors.length;
+        int i = (int)section % colors.length, next = (i+1) % colors.length;
+        float t = section - (int)section;
+        int c1 = colors[i], c2 = colors[next];
+        return ((int)(((c1>>16)&0xFF)*(1-t)+((c2>>16)&0xFF)*t)<<16) | ((int)(((c1>>8)&0xFF)*(1-t)+((c2>>8)&0xFF)*t)<<8) | (int)((c1&0xFF)*(1-t)+(c2&0xFF)*t);
+    }
+}
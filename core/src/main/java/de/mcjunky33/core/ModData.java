@@ -0,0 +1,27 @@
+package de.mcjunky33.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ModData {
+    // Only holds the worlds loaded this session; each world is stored in its own file.
+    public Map<String, WorldState> worldData = new HashMap<>();
+    public boolean showPlaytime = false;
+    public boolean showTimer = true;
+    public boolean playSounds = true;
+    public List<Integer> colorList = new ArrayList<>(List.of(0xFFFFFF));
+    public boolean isBold = true;
+    public boolean isItalic = false;
+    public boolean isUnderlined = false;
+    public int yOffset = 52;
+
+    public void resetVisuals() {
+        this.colorList = new ArrayList<>(List.of(0xFFFFFF));
+        this.isBold = true;
+        this.isItalic = false;
+        this.isUnderlined = false;
+        this.yOffset = 52;
+    }
+}
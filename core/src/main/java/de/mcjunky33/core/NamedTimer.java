@@ -0,0 +1,42 @@
+package de.mcjunky33.core;
+
+import java.util.Objects;
+
+/**
+ * A named countdown or stopwatch. While running, its value is derived from the world clock
+ * ({@link WorldState#clockNanos}) instead of being updated every tick.
+ */
+public class NamedTimer {
+    // Remaining (countdown) or elapsed (stopwatch) time at startedAt.
+    public long valueNanos = 0;
+    public long startedAt = 0;
+    public boolean running = false;
+    public boolean backwards = false;
+    public boolean shown = true;
+
+    public long valueAt(long clockNanos) {
+        if (!running) return valueNanos;
+        long passed = clockNanos - startedAt;
+        return backwards ? Math.max(0, valueNanos - passed) : valueNanos + passed;
+    }
+
+    public long displaySecondsAt(long clockNanos) {
+        long value = valueAt(clockNanos);
+        return backwards ? (value + TimeKeeper.NANOS_PER_SECOND - 1) / TimeKeeper.NANOS_PER_SECOND : value / TimeKeeper.NANOS_PER_SECOND;
+    }
+
+    public long deadline() {
+        return startedAt + valueNanos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof NamedTimer t && valueNanos == t.valueNanos && startedAt == t.startedAt
+                && running == t.running && backwards == t.backwards && shown == t.shown;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(valueNanos, startedAt, running, backwards, shown);
+    }
+}
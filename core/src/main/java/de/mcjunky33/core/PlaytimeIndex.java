@@ -0,0 +1,82 @@
+package de.mcjunky33.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Playtime of every known world, sorted and summed per kind of world. An update is a removal and
+ * an insertion per sorted set, O(log n), so it can follow every passing second. Totals are kept
+ * as running sums and the top entries are read off the front of the sets.
+ */
+public class PlaytimeIndex {
+
+    public enum Filter {
+        ALL(""), LOCAL("local_"), SERVER("server_");
+
+        final String prefix;
+
+        Filter(String prefix) {
+            this.prefix = prefix;
+        }
+
+        boolean matches(String id) {
+            return id.startsWith(prefix);
+        }
+    }
+
+    public record Entry(String id, long seconds) {}
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::seconds).reversed().thenComparing(Entry::id);
+    private static final Filter[] FILTERS = Filter.values();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<TreeSet<Entry>> sorted = new ArrayList<>();
+    private final long[] totals = new long[FILTERS.length];
+
+    public PlaytimeIndex() {
+        for (Filter ignored : FILTERS) sorted.add(new TreeSet<>(ORDER));
+    }
+
+    // A negative playtime (not imported yet) removes the world.
+    public void update(String id, long seconds) {
+        Entry old = entries.get(id);
+        if (old != null && old.seconds() == seconds) return;
+        Entry entry = seconds >= 0 ? new Entry(id, seconds) : null;
+        if (entry != null) entries.put(id, entry);
+        else if (old != null) entries.remove(id);
+        else return;
+        for (Filter filter : FILTERS) {
+            if (!filter.matches(id)) continue;
+            TreeSet<Entry> set = sorted.get(filter.ordinal());
+            if (old != null) {
+                set.remove(old);
+                totals[filter.ordinal()] -= old.seconds();
+            }
+            if (entry != null) {
+                set.add(entry);
+                totals[filter.ordinal()] += entry.seconds();
+            }
+        }
+    }
+
+    public long total(Filter filter) {
+        return totals[filter.ordinal()];
+    }
+
+    public int count(Filter filter) {
+        return sorted.get(filter.ordinal()).size();
+    }
+
+    public List<Entry> top(Filter filter, int n) {
+        List<Entry> top = new ArrayList<>(Math.min(n, count(filter)));
+        for (Entry entry : sorted.get(filter.ordinal())) {
+            if (top.size() == n) break;
+            top.add(entry);
+        }
+        return top;
+    }
+}
@@ -0,0 +1,76 @@
+package de.mcjunky33.core;
+
+/**
+ * Keeps the counted playtime in line with the game's own play time statistic, which the server
+ * only sends when asked. A request is due when a world is joined, and after that only once
+ * enough playtime was counted for drift to build up. There is never more than one request
+ * unanswered. While the statistic keeps agreeing, the interval between requests doubles, up to
+ * {@link #MAX_INTERVAL_SECONDS}. A correction drops it back to {@link #MIN_INTERVAL_SECONDS}.
+ * An unanswered request doubles it as well, so a server that never answers is asked less and less.
+ */
+public class StatReconciler {
+
+    static final long MIN_INTERVAL_SECONDS = 5 * 60;
+    static final long MAX_INTERVAL_SECONDS = 2 * 60 * 60;
+    // Differences this small come from the request's round trip, not from drift.
+    static final long TOLERANCE_SECONDS = 2;
+
+    private static final long RESPONSE_TIMEOUT_NANOS = 30 * TimeKeeper.NANOS_PER_SECOND;
+
+    private final Clock clock;
+    private long intervalSeconds = MIN_INTERVAL_SECONDS;
+    // Playtime when the statistic was last compared, drift can only build up while counting.
+    private long checkedAt = 0;
+    private long requestedAt = -1;
+    private boolean due = false;
+
+    public StatReconciler(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void start(WorldState state) {
+        intervalSeconds = MIN_INTERVAL_SECONDS;
+        checkedAt = Math.max(state.playtimeSeconds, 0);
+        requestedAt = -1;
+        due = true;
+    }
+
+    // Asks for a request as soon as possible, even if one is unanswered.
+    public void force() {
+        requestedAt = -1;
+        due = true;
+    }
+
+    public boolean shouldRequest(WorldState state) {
+        if (requestedAt >= 0) {
+            if (clock.nanoTime() - requestedAt < RESPONSE_TIMEOUT_NANOS) return false;
+            requestedAt = -1;
+            intervalSeconds = Math.min(intervalSeconds * 2, MAX_INTERVAL_SECONDS);
+            checkedAt = Math.max(state.playtimeSeconds, 0);
+        }
+        return due || state.playtimeSeconds - checkedAt >= intervalSeconds;
+    }
+
+    public void requested() {
+        requestedAt = clock.nanoTime();
+        due = false;
+    }
+
+    /**
+     * Compares the counted playtime with the statistic, whether it was asked for or not, and
+     * replaces it if they are further apart than the tolerance. Returns whether it was replaced.
+     */
+    public boolean reconcile(WorldState state, long statSeconds) {
+        requestedAt = -1;
+        due = false;
+        boolean replace = state.playtimeSeconds < 0 || Math.abs(statSeconds - state.playtimeSeconds) > TOLERANCE_SECONDS;
+        if (replace) {
+            state.correctPlaytime(statSeconds);
+            intervalSeconds = MIN_INTERVAL_SECONDS;
+        } else {
+            intervalSeconds = Math.min(intervalSeconds * 2, MAX_INTERVAL_SECONDS);
+        }
+        checkedAt = state.playtimeSeconds;
+        return replace;
+    }
+}
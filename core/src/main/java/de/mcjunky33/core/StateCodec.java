@@ -0,0 +1,191 @@
+package de.mcjunky33.core;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary encoding of the settings and world files:
+ * {@code magic:int, schema:short, kind:short, length:int, version:long, payload[length], crc32c:int}.
+ * All numbers are fixed width. The version counts the writes of the file across all game
+ * instances sharing the directory and is outside the checksum, so it can be stamped right before
+ * writing. Schema 2 appended the world clock and the named timers to the world payload, schema 3
+ * added the version and schema 4 appended the playtime corrections; older files are still read.
+ */
+public final class StateCodec {
+
+    static final int MAGIC = 0x53505431; // "SPT1"
+    static final short SCHEMA_VERSION = 4;
+    static final short KIND_SETTINGS = 1;
+    static final short KIND_WORLD = 2;
+
+    private static final int HEADER_SIZE = 20;
+    private static final int LEGACY_HEADER_SIZE = 12;
+    private static final int VERSION_OFFSET = 12;
+    private static final int TRAILER_SIZE = 4;
+    private static final int WORLD_SIZE = 4 * Long.BYTES + 1;
+    private static final int TIMER_SIZE = Short.BYTES + 2 * Long.BYTES + 1;
+    // Bytes at the start of a world file that hold its playtime, see peekPlaytime.
+    public static final int PEEK_SIZE = HEADER_SIZE + Long.BYTES;
+
+    private StateCodec() {}
+
+    public static ByteBuffer encodeWorld(WorldState state) {
+        int size = WORLD_SIZE + 2 * Long.BYTES + Integer.BYTES;
+        byte[][] names = new byte[state.timers.size()][];
+        int i = 0;
+        for (String name : state.timers.keySet()) {
+            names[i] = name.getBytes(StandardCharsets.UTF_8);
+            size += TIMER_SIZE + names[i++].length;
+        }
+        ByteBuffer buf = begin(KIND_WORLD, size);
+        buf.putLong(state.playtimeSeconds);
+        buf.putLong(state.playtimeNanos);
+        buf.putLong(state.timerSeconds);
+        buf.putLong(state.timerNanos);
+        buf.put((byte) ((state.timerRunning ? 1 : 0) | (state.timerBackwards ? 2 : 0)));
+        buf.putLong(state.clockNanos);
+        buf.putInt(names.length);
+        i = 0;
+        for (NamedTimer timer : state.timers.values()) {
+            buf.putShort((short) names[i].length).put(names[i++]);
+            buf.putLong(timer.valueNanos);
+            buf.putLong(timer.startedAt);
+            buf.put((byte) ((timer.running ? 1 : 0) | (timer.backwards ? 2 : 0) | (timer.shown ? 4 : 0)));
+        }
+        buf.putLong(state.correctionNanos);
+        return end(buf);
+    }
+
+    public static WorldState decodeWorld(ByteBuffer buf) throws IOException {
+        short schema = schema(buf);
+        ByteBuffer payload = open(buf, KIND_WORLD);
+        try {
+            WorldState state = new WorldState();
+            state.playtimeSeconds = payload.getLong();
+            state.playtimeNanos = payload.getLong();
+            state.timerSeconds = payload.getLong();
+            state.timerNanos = payload.getLong();
+            byte flags = payload.get();
+            state.timerRunning = (flags & 1) != 0;
+            state.timerBackwards = (flags & 2) != 0;
+            if (schema < 2) return state;
+            state.clockNanos = payload.getLong();
+            int timers = payload.getInt();
+            if (timers < 0 || timers > payload.remaining() / TIMER_SIZE) throw new IOException("Invalid timer count " + timers);
+            for (int i = 0; i < timers; i++) {
+                byte[] name = new byte[payload.getShort() & 0xFFFF];
+                payload.get(name);
+                NamedTimer timer = new NamedTimer();
+                timer.valueNanos = payload.getLong();
+                timer.startedAt = payload.getLong();
+                byte timerFlags = payload.get();
+                timer.running = (timerFlags & 1) != 0;
+                timer.backwards = (timerFlags & 2) != 0;
+                timer.shown = (timerFlags & 4) != 0;
+                state.timers.put(new String(name, StandardCharsets.UTF_8), timer);
+            }
+            if (schema >= 4) state.correctionNanos = payload.getLong();
+            return state;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated world payload", e);
+        }
+    }
+
+    public static ByteBuffer encodeSettings(ModData data) {
+        ByteBuffer buf = begin(KIND_SETTINGS, 1 + 2 * Integer.BYTES + data.colorList.size() * Integer.BYTES);
+        buf.put((byte) ((data.showPlaytime ? 1 : 0) | (data.showTimer ? 2 : 0) | (data.playSounds ? 4 : 0)
+                | (data.isBold ? 8 : 0) | (data.isItalic ? 16 : 0) | (data.isUnderlined ? 32 : 0)));
+        buf.putInt(data.yOffset);
+        buf.putInt(data.colorList.size());
+        for (int color : data.colorList) buf.putInt(color);
+        return end(buf);
+    }
+
+    public static ModData decodeSettings(ByteBuffer buf) throws IOException {
+        ByteBuffer payload = open(buf, KIND_SETTINGS);
+        try {
+            ModData data = new ModData();
+            byte flags = payload.get();
+            data.showPlaytime = (flags & 1) != 0;
+            data.showTimer = (flags & 2) != 0;
+            data.playSounds = (flags & 4) != 0;
+            data.isBold = (flags & 8) != 0;
+            data.isItalic = (flags & 16) != 0;
+            data.isUnderlined = (flags & 32) != 0;
+            data.yOffset = payload.getInt();
+            int colors = payload.getInt();
+            if (colors < 0 || colors > payload.remaining() / Integer.BYTES) throw new IOException("Invalid color count " + colors);
+            data.colorList = new ArrayList<>(colors);
+            for (int i = 0; i < colors; i++) data.colorList.add(payload.getInt());
+            if (data.colorList.isEmpty()) data.colorList.add(0xFFFFFF);
+            return data;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated settings payload", e);
+        }
+    }
+
+    // Reads the playtime from the start of a world file without decoding or checking the rest,
+    // for scanning many worlds at once.
+    public static long peekPlaytime(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < LEGACY_HEADER_SIZE + Long.BYTES || buf.getInt(buf.position()) != MAGIC) throw new IOException("Bad magic");
+        if (buf.getShort(buf.position() + Integer.BYTES + Short.BYTES) != KIND_WORLD) throw new IOException("Unexpected file kind");
+        int offset = schema(buf) >= 3 ? HEADER_SIZE : LEGACY_HEADER_SIZE;
+        if (buf.remaining() < offset + Long.BYTES) throw new IOException("File too short");
+        return buf.getLong(buf.position() + offset);
+    }
+
+    // The write version of an encoded file, 0 for files written before versions existed.
+    public static long version(ByteBuffer buf) {
+        if (buf.remaining() < HEADER_SIZE || buf.getInt(buf.position()) != MAGIC || schema(buf) < 3) return 0;
+        return buf.getLong(buf.position() + VERSION_OFFSET);
+    }
+
+    public static void setVersion(ByteBuffer buf, long version) {
+        buf.putLong(VERSION_OFFSET, version);
+    }
+
+    public static int headerSize() {
+        return HEADER_SIZE;
+    }
+
+    private static short schema(ByteBuffer buf) {
+        return buf.getShort(buf.position() + Integer.BYTES);
+    }
+
+    private static ByteBuffer begin(short kind, int payloadSize) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + payloadSize + TRAILER_SIZE);
+        buf.putInt(MAGIC).putShort(SCHEMA_VERSION).putShort(kind).putInt(payloadSize).putLong(0);
+        return buf;
+    }
+
+    private static ByteBuffer end(ByteBuffer buf) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.array(), HEADER_SIZE, buf.position() - HEADER_SIZE);
+        buf.putInt((int) crc.getValue());
+        return buf.flip();
+    }
+
+    // Validates the header and checksum and returns a view of just the payload.
+    private static ByteBuffer open(ByteBuffer buf, short kind) throws IOException {
+        if (buf.remaining() < LEGACY_HEADER_SIZE + TRAILER_SIZE) throw new IOException("File too short");
+        if (buf.getInt() != MAGIC) throw new IOException("Bad magic");
+        short schema = buf.getShort();
+        if (schema < 1 || schema > SCHEMA_VERSION) throw new IOException("Unsupported schema version " + schema);
+        if (buf.getShort() != kind) throw new IOException("Unexpected file kind");
+        int length = buf.getInt();
+        if (schema >= 3) {
+            if (buf.remaining() < Long.BYTES + TRAILER_SIZE) throw new IOException("File too short");
+            buf.getLong();
+        }
+        if (length < 0 || length != buf.remaining() - TRAILER_SIZE) throw new IOException("Length mismatch");
+        ByteBuffer payload = buf.slice(buf.position(), length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buf.getInt(buf.position() + length)) throw new IOException("Checksum mismatch");
+        return payload;
+    }
+}
@@ -0,0 +1,14 @@
+package de.mcjunky33.core;
+
+public final class TimeFormat {
+
+    private TimeFormat() {}
+
+    public static String format(long t) {
+        if (t <= 0) return "0s";
+        long y = t / 31536000, M = (t % 31536000) / 2592000, w = (t % 2592000) / 604800, d = (t % 604800) / 86400, h = (t % 86400) / 3600, m = (t % 3600) / 60, s = t % 60;
+        StringBuilder sb = new StringBuilder(24);
+        if (y > 0) sb.append(y).append("y "); if (M > 0) sb.append(M).append("M "); if (w > 0) sb.append(w).append("w "); if (d > 0) sb.append(d).append("d "); if (h > 0) sb.append(h).append("h "); if (m > 0) sb.append(m).append("m "); if (s > 0) sb.append(s).append("s");
+        return sb.toString().trim();
+    }
+}
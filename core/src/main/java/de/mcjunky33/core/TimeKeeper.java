@@ -0,0 +1,73 @@
+package de.mcjunky33.core;
+
+/**
+ * Measures how much real time passes while a world is running, based on a monotonic
+ * nanosecond clock instead of counting client ticks. Time is carried with sub-second
+ * precision, so late or skipped ticks do not lose any of it.
+ */
+public class TimeKeeper {
+
+    public static final long NANOS_PER_SECOND = 1_000_000_000L;
+    public static final int SECOND_PASSED = 1;
+    public static final int TIMER_FINISHED = 2;
+
+    // Longer gaps (suspended machine, debugger) are not counted as playtime.
+    static final long MAX_STEP_NANOS = 5 * NANOS_PER_SECOND;
+
+    private final Clock clock;
+    private long last = -1;
+
+    public TimeKeeper(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void start() {
+        last = clock.nanoTime();
+    }
+
+    public void stop() {
+        last = -1;
+    }
+
+    public int advance(WorldState state) {
+        long now = clock.nanoTime();
+        if (last < 0) {
+            last = now;
+            return 0;
+        }
+        long elapsed = Math.min(now - last, MAX_STEP_NANOS);
+        last = now;
+        return elapsed > 0 ? add(state, elapsed) : 0;
+    }
+
+    static int add(WorldState state, long elapsed) {
+        int result = 0;
+        state.clockNanos += elapsed;
+        // A world that was never counted before starts at zero, which is a change of its own.
+        if (state.playtimeSeconds < 0) {
+            state.playtimeSeconds = 0;
+            result |= SECOND_PASSED;
+        }
+        long playtime = state.playtimeNanos + elapsed;
+        if (playtime >= NANOS_PER_SECOND) result |= SECOND_PASSED;
+        state.playtimeSeconds += playtime / NANOS_PER_SECOND;
+        state.playtimeNanos = playtime % NANOS_PER_SECOND;
+
+        if (state.timerRunning) {
+            long timer = state.timerSeconds * NANOS_PER_SECOND + state.timerNanos;
+            if (state.timerBackwards) {
+                timer -= elapsed;
+                if (timer <= 0) {
+                    timer = 0;
+                    state.timerRunning = false;
+                    result |= TIMER_FINISHED;
+                }
+            } else {
+                timer += elapsed;
+            }
+            state.timerSeconds = timer / NANOS_PER_SECOND;
+            state.timerNanos = timer % NANOS_PER_SECOND;
+        }
+        return result;
+    }
+}
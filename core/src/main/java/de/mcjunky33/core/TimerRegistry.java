@@ -0,0 +1,125 @@
+package de.mcjunky33.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The named timers of the current world. Running countdowns are scheduled on a timing wheel
+ * against the world clock, so a tick costs the same whether no timer or hundreds of timers
+ * are running, and only an expiring countdown is touched.
+ */
+public class TimerRegistry {
+
+    private static final long WHEEL_TICK_NANOS = 50_000_000L;
+
+    private final WorldState state;
+    private final TimingWheel<String> wheel;
+    private final Map<String, TimingWheel.Entry<String>> scheduled = new HashMap<>();
+    private int running = 0;
+
+    TimerRegistry(WorldState state) {
+        this.state = state;
+        this.wheel = new TimingWheel<>(WHEEL_TICK_NANOS, state.clockNanos);
+        state.timers.forEach((name, timer) -> {
+            if (timer.running) {
+                running++;
+                if (timer.backwards) scheduled.put(name, wheel.schedule(name, timer.deadline()));
+            }
+        });
+    }
+
+    public NamedTimer get(String name) {
+        return state.timers.get(name);
+    }
+
+    public Iterable<String> names() {
+        return state.timers.keySet();
+    }
+
+    public int runningCount() {
+        return running;
+    }
+
+    public void countdown(String name, long nanos) {
+        NamedTimer timer = replace(name);
+        timer.backwards = true;
+        timer.valueNanos = nanos;
+        start(name, timer);
+    }
+
+    public void stopwatch(String name) {
+        NamedTimer timer = replace(name);
+        timer.backwards = false;
+        start(name, timer);
+    }
+
+    public boolean pause(String name) {
+        NamedTimer timer = state.timers.get(name);
+        if (timer == null || !timer.running) return false;
+        timer.valueNanos = timer.valueAt(state.clockNanos);
+        stop(name, timer);
+        return true;
+    }
+
+    public boolean resume(String name) {
+        NamedTimer timer = state.timers.get(name);
+        if (timer == null || timer.running || (timer.backwards && timer.valueNanos == 0)) return false;
+        start(name, timer);
+        return true;
+    }
+
+    public boolean remove(String name) {
+        NamedTimer timer = state.timers.remove(name);
+        if (timer == null) return false;
+        if (timer.running) stop(name, timer);
+        return true;
+    }
+
+    public boolean show(String name, boolean shown) {
+        NamedTimer timer = state.timers.get(name);
+        if (timer == null) return false;
+        timer.shown = shown;
+        return true;
+    }
+
+    // Hands the names of countdowns that reached zero by the current world clock to finished. Also
+    // called with no countdowns running, an empty wheel just jumps to the current tick, so the
+    // first countdown started after a long idle time does not make it step through all of it.
+    void advance(Consumer<String> finished) {
+        wheel.advance(state.clockNanos, name -> {
+            scheduled.remove(name);
+            NamedTimer timer = state.timers.get(name);
+            timer.valueNanos = 0;
+            timer.running = false;
+            running--;
+            finished.accept(name);
+        });
+    }
+
+    private NamedTimer replace(String name) {
+        NamedTimer timer = state.timers.get(name);
+        if (timer == null) {
+            timer = new NamedTimer();
+            state.timers.put(name, timer);
+        } else if (timer.running) {
+            stop(name, timer);
+        }
+        timer.valueNanos = 0;
+        return timer;
+    }
+
+    private void start(String name, NamedTimer timer) {
+        timer.running = true;
+        timer.startedAt = state.clockNanos;
+        running++;
+        if (timer.backwards) scheduled.put(name, wheel.schedule(name, timer.deadline()));
+    }
+
+    private void stop(String name, NamedTimer timer) {
+        timer.running = false;
+        running--;
+        TimingWheel.Entry<String> entry = scheduled.remove(name);
+        if (entry != null) wheel.cancel(entry);
+    }
+}
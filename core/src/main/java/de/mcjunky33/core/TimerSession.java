@@ -0,0 +1,112 @@
+package de.mcjunky33.core;
+
+import java.util.function.Consumer;
+
+/**
+ * The timer logic of the world being played: counting playtime, the timer and the named timers
+ * against a {@link Clock}, and the timer commands. The client feeds it joins, leaves, pauses and
+ * ticks and turns the results into sounds, messages and saves.
+ */
+public class TimerSession {
+
+    private final TimeKeeper keeper;
+    private WorldState state = null;
+    private TimerRegistry timers = null;
+    private boolean paused = false;
+
+    public TimerSession(Clock clock) {
+        this.keeper = new TimeKeeper(clock);
+    }
+
+    public boolean isActive() {
+        return state != null;
+    }
+
+    public WorldState state() {
+        return state;
+    }
+
+    public TimerRegistry timers() {
+        return timers;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    // Whether something on the world changes with every tick, as opposed to only playtime.
+    public boolean isBusy() {
+        return state.timerRunning || timers.runningCount() > 0;
+    }
+
+    public void join(WorldState state) {
+        this.state = state;
+        this.timers = new TimerRegistry(state);
+        paused = false;
+        keeper.start();
+    }
+
+    // The world's timer is paused, named timers stand still on their own as the world clock does.
+    public void leave() {
+        if (state != null) state.timerRunning = false;
+        state = null;
+        timers = null;
+        paused = false;
+        keeper.stop();
+    }
+
+    // Callers advance before pausing, time spent paused is never counted.
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (paused) keeper.stop();
+        else keeper.start();
+    }
+
+    // The named timers were replaced from outside, e.g. by another game instance.
+    public void reloadTimers() {
+        if (state != null) timers = new TimerRegistry(state);
+    }
+
+    /**
+     * Folds the time passed since the last call into the world and hands the names of named
+     * countdowns that ran out to {@code finished}. Returns the {@link TimeKeeper} flags.
+     */
+    public int advance(Consumer<String> finished) {
+        if (state == null || paused) return 0;
+        int result = keeper.advance(state);
+        timers.advance(finished);
+        return result;
+    }
+
+    public boolean startTimer() {
+        if (state.timerRunning) return false;
+        state.timerRunning = true;
+        return true;
+    }
+
+    public boolean pauseTimer() {
+        if (!state.timerRunning) return false;
+        state.timerRunning = false;
+        return true;
+    }
+
+    public boolean resumeTimer() {
+        if (state.timerRunning || state.timerDisplaySeconds() == 0) return false;
+        state.timerRunning = true;
+        return true;
+    }
+
+    public void stopTimer() {
+        state.timerRunning = false;
+        state.resetTimer();
+    }
+
+    public void addTimer(long seconds) {
+        state.timerSeconds += seconds;
+    }
+
+    public void setTimer(long seconds) {
+        state.timerNanos = 0;
+        state.timerSeconds = seconds;
+    }
+}
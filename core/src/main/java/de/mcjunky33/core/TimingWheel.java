@@ -0,0 +1,124 @@
+package de.mcjunky33.core;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Six levels of 64 slots cover about 218 years at 50 ms resolution.
+ * Scheduling and cancelling are O(1), and advancing by one wheel tick only looks at a single
+ * slot, plus an occasional cascade of one higher-level slot. So the cost does not depend on how
+ * many entries are scheduled.
+ */
+final class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+
+    static final class Entry<T> {
+        final T value;
+        private final long deadlineTick;
+        private Entry<T> prev, next;
+
+        private Entry(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+
+        boolean isScheduled() {
+            return prev != null;
+        }
+    }
+
+    private final long tickNanos;
+    private final Entry<T>[] heads;
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long tickNanos, long nowNanos) {
+        this.tickNanos = tickNanos;
+        this.currentTick = nowNanos / tickNanos;
+        this.heads = newHeads(LEVELS * SLOTS);
+        for (int i = 0; i < heads.length; i++) {
+            Entry<T> head = new Entry<>(null, 0);
+            head.prev = head.next = head;
+            heads[i] = head;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    Entry<T> schedule(T value, long deadlineNanos) {
+        Entry<T> entry = new Entry<>(value, Math.max(ceilDiv(deadlineNanos, tickNanos), currentTick + 1));
+        link(entry);
+        size++;
+        return entry;
+    }
+
+    void cancel(Entry<T> entry) {
+        if (!entry.isScheduled()) return;
+        unlink(entry);
+        size--;
+    }
+
+    void advance(long nowNanos, Consumer<T> expired) {
+        long target = nowNanos / tickNanos;
+        while (currentTick < target) {
+            currentTick++;
+            if (size == 0) {
+                currentTick = target;
+                return;
+            }
+            int top = 0;
+            while (top + 1 < LEVELS && (currentTick & ((1L << (BITS * (top + 1))) - 1)) == 0) top++;
+            for (int level = top; level >= 1; level--) cascade(level, (int) ((currentTick >>> (BITS * level)) & MASK));
+
+            Entry<T> head = heads[(int) (currentTick & MASK)];
+            while (head.next != head) {
+                Entry<T> entry = head.next;
+                unlink(entry);
+                size--;
+                expired.accept(entry.value);
+            }
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        Entry<T> head = heads[level * SLOTS + slot];
+        while (head.next != head) {
+            Entry<T> entry = head.next;
+            unlink(entry);
+            link(entry);
+        }
+    }
+
+    private void link(Entry<T> entry) {
+        long deadline = Math.max(entry.deadlineTick, currentTick);
+        long delta = deadline - currentTick;
+        int level = 0;
+        while (level + 1 < LEVELS && delta >= 1L << (BITS * (level + 1))) level++;
+        Entry<T> head = heads[level * SLOTS + (int) ((deadline >>> (BITS * level)) & MASK)];
+        entry.prev = head.prev;
+        entry.next = head;
+        head.prev.next = entry;
+        head.prev = entry;
+    }
+
+    private void unlink(Entry<T> entry) {
+        entry.prev.next = entry.next;
+        entry.next.prev = entry.prev;
+        entry.prev = entry.next = null;
+    }
+
+    // Generic arrays cannot be created, every element is an Entry<T> by construction.
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newHeads(int size) {
+        return (Entry<T>[]) new Entry<?>[size];
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+}
@@ -0,0 +1,68 @@
+package de.mcjunky33.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class WorldState {
+    public long playtimeSeconds = -1;
+    public long playtimeNanos = 0;
+    public long timerSeconds = 0;
+    public long timerNanos = 0;
+    public boolean timerRunning = false;
+    public boolean timerBackwards = false;
+    // Time this world has been running, the clock named timers are measured against.
+    public long clockNanos = 0;
+    public Map<String, NamedTimer> timers = new LinkedHashMap<>();
+    // Sum of the jumps corrections made to the playtime, so merges can tell them from counted time.
+    public long correctionNanos = 0;
+
+    public long timerDisplaySeconds() {
+        return timerBackwards && timerNanos > 0 ? timerSeconds + 1 : timerSeconds;
+    }
+
+    public void resetTimer() {
+        timerSeconds = 0;
+        timerNanos = 0;
+    }
+
+    // Replaces the playtime, e.g. with the game's statistic, and remembers the jump as a correction.
+    public void correctPlaytime(long seconds) {
+        correctionNanos += seconds * TimeKeeper.NANOS_PER_SECOND - playtimeTotalNanos();
+        playtimeSeconds = seconds;
+        playtimeNanos = 0;
+    }
+
+    // Applies what another game instance changed between base and updated on top of this state.
+    // Both instances were counting playtime, so the time it counted is added. Its corrections are
+    // not: two accounts sharing a server world each have their own statistic, and every instance
+    // keeps the one of its account instead of the two correcting each other back and forth. The
+    // timer and the named timers are taken from updated if they changed there. Returns whether
+    // the named timers were replaced.
+    public boolean mergeFrom(WorldState base, WorldState updated) {
+        if (playtimeSeconds < 0) {
+            playtimeSeconds = updated.playtimeSeconds;
+            playtimeNanos = updated.playtimeNanos;
+            correctionNanos = updated.correctionNanos;
+        } else {
+            long counted = updated.playtimeTotalNanos() - updated.correctionNanos - (base.playtimeTotalNanos() - base.correctionNanos);
+            long total = Math.max(0, playtimeTotalNanos() + counted);
+            playtimeSeconds = total / TimeKeeper.NANOS_PER_SECOND;
+            playtimeNanos = total % TimeKeeper.NANOS_PER_SECOND;
+        }
+        if (updated.timerSeconds != base.timerSeconds || updated.timerNanos != base.timerNanos
+                || updated.timerRunning != base.timerRunning || updated.timerBackwards != base.timerBackwards) {
+            timerSeconds = updated.timerSeconds;
+            timerNanos = updated.timerNanos;
+            timerRunning = updated.timerRunning;
+            timerBackwards = updated.timerBackwards;
+        }
+        if (updated.timers.equals(base.timers)) return false;
+        clockNanos = updated.clockNanos;
+        timers = new LinkedHashMap<>(updated.timers);
+        return true;
+    }
+
+    private long playtimeTotalNanos() {
+        return Math.max(playtimeSeconds, 0) * TimeKeeper.NANOS_PER_SECOND + playtimeNanos;
+    }
+}
@@ -0,0 +1,98 @@
+package de.mcjunky33.core;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Feeds {@link TimeKeeper} irregular tick timings on a simulated clock and measures how far the
+ * counted playtime, a count-up timer and a countdown drift from the real time that passed. For
+ * comparison, the old way of counting 20 ticks as one second is tallied next to it.
+ * <p>
+ * Usage: {@code DriftHarness [seconds] [seed]}, or {@code ./gradlew :core:runDriftHarness}.
+ * Exits with status 1 if the keeper drifted or a countdown finished late.
+ */
+public final class DriftHarness {
+
+    private static final long TICK_NANOS = 50_000_000L;
+    private static final long COUNTDOWN_SECONDS = 90;
+
+    private interface Timing {
+        long next(SplittableRandom random);
+    }
+
+    private record Scenario(String name, Timing timing) {}
+
+    private static final Scenario[] SCENARIOS = {
+            new Scenario("steady 20 TPS", r -> TICK_NANOS),
+            new Scenario("jitter 20-150ms", r -> 20_000_000L + r.nextLong(130_000_000L)),
+            new Scenario("low TPS (10)", r -> 2 * TICK_NANOS),
+            new Scenario("lag spikes", r -> r.nextInt(100) == 0 ? 500_000_000L + r.nextLong(2_000_000_000L) : TICK_NANOS),
+            new Scenario("skipped ticks", r -> TICK_NANOS * (1 + (r.nextInt(10) == 0 ? r.nextInt(5) : 0))),
+            new Scenario("stalls over the cap", r -> r.nextInt(2000) == 0 ? 30 * TimeKeeper.NANOS_PER_SECOND : TICK_NANOS),
+    };
+
+    private static final class ManualClock implements Clock {
+        long now = 1_000 * TimeKeeper.NANOS_PER_SECOND;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    public static void main(String[] args) {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 3600;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        int failures = 0;
+        System.out.printf(Locale.ROOT, "%-20s %12s %14s %14s %14s %14s%n", "scenario", "real", "playtime", "count-up", "countdown", "20 ticks/s");
+        for (Scenario scenario : SCENARIOS) {
+            if (!run(scenario, seconds * TimeKeeper.NANOS_PER_SECOND, new SplittableRandom(seed))) failures++;
+        }
+        System.out.printf(Locale.ROOT, "%d of %d scenarios drifted%n", failures, SCENARIOS.length);
+        if (failures > 0) System.exit(1);
+    }
+
+    // Prints the drift of every counter against the real time and returns whether the keeper was exact.
+    private static boolean run(Scenario scenario, long duration, SplittableRandom random) {
+        ManualClock clock = new ManualClock();
+        TimeKeeper upKeeper = new TimeKeeper(clock);
+        TimeKeeper downKeeper = new TimeKeeper(clock);
+        WorldState up = new WorldState();
+        WorldState down = new WorldState();
+        up.timerRunning = true;
+        down.timerRunning = true;
+        down.timerBackwards = true;
+        down.timerSeconds = COUNTDOWN_SECONDS;
+
+        // Real time that counts as playtime: gaps longer than the cap are meant to be dropped.
+        long real = 0;
+        long ticks = 0;
+        long finishedAt = -1;
+        long late = 0;
+        upKeeper.start();
+        downKeeper.start();
+        while (real < duration) {
+            long step = scenario.timing().next(random);
+            clock.now += step;
+            real += Math.min(step, TimeKeeper.MAX_STEP_NANOS);
+            ticks++;
+            upKeeper.advance(up);
+            int result = downKeeper.advance(down);
+            if ((result & TimeKeeper.TIMER_FINISHED) != 0 && finishedAt < 0) {
+                finishedAt = real;
+                late = real - COUNTDOWN_SECONDS * TimeKeeper.NANOS_PER_SECOND;
+            }
+        }
+
+        long playtime = up.playtimeSeconds * TimeKeeper.NANOS_PER_SECOND + up.playtimeNanos;
+        long countUp = up.timerSeconds * TimeKeeper.NANOS_PER_SECOND + up.timerNanos;
+        long tickCounted = ticks / 20 * TimeKeeper.NANOS_PER_SECOND;
+        boolean exact = playtime == real && countUp == real && finishedAt >= 0 && late >= 0 && late <= TimeKeeper.MAX_STEP_NANOS
+                && down.timerSeconds == 0 && down.timerNanos == 0;
+        System.out.printf(Locale.ROOT, "%-20s %11.1fs %+13.3fs %+13.3fs %+13.3fs %+13.1fs%s%n", scenario.name(), real / 1e9,
+                (playtime - real) / 1e9, (countUp - real) / 1e9, finishedAt < 0 ? Double.NaN : late / 1e9,
+                (tickCounted - real) / 1e9, exact ? "" : "  DRIFTED");
+        return exact;
+    }
+}
@@ -0,0 +1,288 @@
+package de.mcjunky33.core;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Drives many {@link TimerSession}s through random joins, disconnects, pauses, timer commands and
+ * ticks on a simulated clock, without Minecraft. Every world's playtime and timer are tallied
+ * independently and compared after each tick, and the named countdowns are checked to finish
+ * once, on time and never below zero. Worlds are encoded on disconnect and decoded on join,
+ * like the game does.
+ * <p>
+ * Usage: {@code TickSimulator [ticks] [sessions] [worlds] [seed]}, or {@code ./gradlew :core:runSimulator}.
+ * Exits with status 1 if an invariant was violated.
+ */
+public final class TickSimulator {
+
+    private static final long TICK_NANOS = 50_000_000L;
+    // Countdowns are due at the first wheel tick after their deadline, see TimerRegistry.
+    private static final long WHEEL_TICK_NANOS = 50_000_000L;
+    private static final int NAMES = 32;
+    private static final int MAX_REPORTED = 10;
+
+    private static final class ManualClock implements Clock {
+        long now = 1_000 * TimeKeeper.NANOS_PER_SECOND;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    private final class Player {
+        final TimerSession session = new TimerSession(clock);
+        int world = -1;
+        long last;
+    }
+
+    private final ManualClock clock = new ManualClock();
+    private final SplittableRandom random;
+    private final Player[] players;
+    private final ByteBuffer[] stored;
+    private final boolean[] occupied;
+    private final long[] expectedPlaytime;
+    private final long[] expectedTimer;
+    private final Map<Integer, Map<String, Long>> deadlines = new HashMap<>();
+    private final String[] names = new String[NAMES];
+    private final PlaytimeIndex index = new PlaytimeIndex();
+
+    private long joins, leaves, commands, finishedMain, finishedNamed, violations;
+
+    private TickSimulator(int sessions, int worlds, long seed) {
+        random = new SplittableRandom(seed);
+        players = new Player[sessions];
+        for (int i = 0; i < sessions; i++) players[i] = new Player();
+        stored = new ByteBuffer[worlds];
+        occupied = new boolean[worlds];
+        expectedPlaytime = new long[worlds];
+        expectedTimer = new long[worlds];
+        for (int i = 0; i < NAMES; i++) names[i] = "t" + i;
+    }
+
+    public static void main(String[] args) {
+        long ticks = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int worlds = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        TickSimulator sim = new TickSimulator(sessions, worlds, seed);
+        long start = System.nanoTime();
+        for (long tick = 0; tick < ticks; tick++) sim.tick();
+        sim.leaveAll();
+        sim.checkIndex();
+        long nanos = System.nanoTime() - start;
+
+        System.out.printf(Locale.ROOT, "%,d ticks x %,d sessions over %,d worlds in %.2fs (%,.0f session ticks/s)%n",
+                ticks, sessions, worlds, nanos / 1e9, ticks * sessions / (nanos / 1e9));
+        System.out.printf(Locale.ROOT, "%,d joins, %,d disconnects, %,d commands, %,d timers and %,d named countdowns finished%n",
+                sim.joins, sim.leaves, sim.commands, sim.finishedMain, sim.finishedNamed);
+        System.out.printf(Locale.ROOT, "%,d invariant violations%n", sim.violations);
+        if (sim.violations > 0) System.exit(1);
+    }
+
+    private void tick() {
+        // Mostly regular ticks, sometimes a slow frame, rarely a stall longer than TimeKeeper counts.
+        int roll = random.nextInt(1000);
+        clock.now += roll == 0 ? 30 * TimeKeeper.NANOS_PER_SECOND : roll < 50 ? random.nextLong(TICK_NANOS * 10) : TICK_NANOS;
+        for (Player p : players) {
+            if (p.world < 0) {
+                if (random.nextInt(200) == 0) join(p);
+                continue;
+            }
+            int action = random.nextInt(2000);
+            if (action == 0) {
+                leave(p);
+                continue;
+            }
+            if (!p.session.isPaused()) advance(p);
+            // Commands act on an up to date world, as the client advances before running one.
+            if (action == 1) togglePause(p);
+            else if (action < 40) command(p);
+        }
+    }
+
+    private void join(Player p) {
+        int world = random.nextInt(occupied.length);
+        if (occupied[world]) return;
+        occupied[world] = true;
+        WorldState state = new WorldState();
+        if (stored[world] != null) {
+            try {
+                state = StateCodec.decodeWorld(stored[world].duplicate());
+            } catch (Exception e) {
+                violation("world " + world + " could not be decoded: " + e);
+            }
+        }
+        p.world = world;
+        p.session.join(state);
+        p.last = clock.now;
+        index.update(id(world), state.playtimeSeconds);
+        joins++;
+    }
+
+    private void leave(Player p) {
+        if (!p.session.isPaused()) advance(p);
+        WorldState state = p.session.state();
+        checkOverdue(p.world, state);
+        p.session.leave();
+        stored[p.world] = StateCodec.encodeWorld(state);
+        if (!StateCodec.encodeWorld(state).equals(stored[p.world])) violation("world " + p.world + " does not encode deterministically");
+        occupied[p.world] = false;
+        p.world = -1;
+        leaves++;
+    }
+
+    private void leaveAll() {
+        for (Player p : players) if (p.world >= 0) leave(p);
+    }
+
+    private void togglePause(Player p) {
+        if (p.session.isPaused()) {
+            p.session.setPaused(false);
+            p.last = clock.now;
+        } else {
+            advance(p);
+            p.session.setPaused(true);
+        }
+    }
+
+    private void command(Player p) {
+        WorldState state = p.session.state();
+        TimerRegistry timers = p.session.timers();
+        Map<String, Long> due = deadlines.computeIfAbsent(p.world, w -> new HashMap<>());
+        String name = names[random.nextInt(NAMES)];
+        long seconds = 1 + random.nextInt(600);
+        commands++;
+        switch (random.nextInt(10)) {
+            case 0 -> p.session.startTimer();
+            case 1 -> p.session.pauseTimer();
+            case 2 -> p.session.resumeTimer();
+            case 3 -> {
+                p.session.stopTimer();
+                expectedTimer[p.world] = 0;
+            }
+            case 4 -> {
+                p.session.setTimer(seconds);
+                expectedTimer[p.world] = seconds * TimeKeeper.NANOS_PER_SECOND;
+            }
+            case 5 -> state.timerBackwards = random.nextBoolean();
+            case 6 -> {
+                timers.countdown(name, seconds * TimeKeeper.NANOS_PER_SECOND);
+                due.put(name, state.clockNanos + seconds * TimeKeeper.NANOS_PER_SECOND);
+            }
+            case 7 -> {
+                timers.stopwatch(name);
+                due.remove(name);
+            }
+            case 8 -> {
+                if (random.nextBoolean()) {
+                    if (timers.pause(name)) due.remove(name);
+                } else if (timers.resume(name)) {
+                    NamedTimer timer = timers.get(name);
+                    if (timer.backwards) due.put(name, timer.deadline());
+                }
+            }
+            default -> {
+                timers.remove(name);
+                due.remove(name);
+            }
+        }
+    }
+
+    private void advance(Player p) {
+        int world = p.world;
+        WorldState state = p.session.state();
+        long elapsed = Math.min(clock.now - p.last, TimeKeeper.MAX_STEP_NANOS);
+        p.last = clock.now;
+        boolean running = state.timerRunning;
+        boolean backwards = state.timerBackwards;
+
+        int result = p.session.advance(name -> finished(world, state, name));
+        if ((result & TimeKeeper.SECOND_PASSED) != 0) index.update(id(world), state.playtimeSeconds);
+
+        if (elapsed > 0) {
+            expectedPlaytime[world] += elapsed;
+            if (running) expectedTimer[world] = backwards ? Math.max(0, expectedTimer[world] - elapsed) : expectedTimer[world] + elapsed;
+        }
+        long playtime = Math.max(state.playtimeSeconds, 0) * TimeKeeper.NANOS_PER_SECOND + state.playtimeNanos;
+        if (playtime != expectedPlaytime[world]) {
+            violation("world " + world + " counted " + playtime + "ns of playtime, expected " + expectedPlaytime[world]);
+            expectedPlaytime[world] = playtime;
+        }
+        long timer = state.timerSeconds * TimeKeeper.NANOS_PER_SECOND + state.timerNanos;
+        if (state.timerSeconds < 0 || state.timerNanos < 0) violation("world " + world + " timer went below zero: " + timer);
+        if (timer != expectedTimer[world]) {
+            violation("world " + world + " timer is " + timer + "ns, expected " + expectedTimer[world]);
+            expectedTimer[world] = timer;
+        }
+        if ((result & TimeKeeper.TIMER_FINISHED) != 0) {
+            finishedMain++;
+            if (!(running && backwards) || timer != 0 || state.timerRunning) violation("world " + world + " timer finished at " + timer + "ns");
+        }
+    }
+
+    private void finished(int world, WorldState state, String name) {
+        finishedNamed++;
+        Long deadline = deadlines.get(world).remove(name);
+        NamedTimer timer = state.timers.get(name);
+        if (deadline == null) {
+            violation("world " + world + " countdown " + name + " finished without being due");
+        } else if (state.clockNanos < deadline) {
+            violation("world " + world + " countdown " + name + " finished " + (deadline - state.clockNanos) + "ns early");
+        } else if (state.clockNanos - deadline > WHEEL_TICK_NANOS + TimeKeeper.MAX_STEP_NANOS) {
+            violation("world " + world + " countdown " + name + " finished " + (state.clockNanos - deadline) + "ns late");
+        }
+        if (timer == null || timer.running || timer.valueAt(state.clockNanos) != 0) violation("world " + world + " countdown " + name + " is not at zero after finishing");
+    }
+
+    // Every countdown past its wheel tick must have been reported by the last advance.
+    private void checkOverdue(int world, WorldState state) {
+        Map<String, Long> due = deadlines.get(world);
+        if (due == null) return;
+        for (Map.Entry<String, Long> entry : due.entrySet()) {
+            long dueAt = -Math.floorDiv(-entry.getValue(), WHEEL_TICK_NANOS) * WHEEL_TICK_NANOS;
+            if (state.clockNanos >= dueAt) violation("world " + world + " countdown " + entry.getKey() + " is overdue");
+            NamedTimer timer = state.timers.get(entry.getKey());
+            if (timer == null || timer.displaySecondsAt(state.clockNanos) < 0) violation("world " + world + " countdown " + entry.getKey() + " is below zero");
+        }
+    }
+
+    // The incrementally kept index must agree with the stored worlds.
+    private void checkIndex() {
+        long total = 0;
+        int count = 0;
+        for (ByteBuffer world : stored) {
+            if (world == null) continue;
+            try {
+                long seconds = StateCodec.peekPlaytime(world.duplicate());
+                if (seconds >= 0) {
+                    total += seconds;
+                    count++;
+                }
+            } catch (Exception e) {
+                violation("stored world could not be peeked: " + e);
+            }
+        }
+        if (index.total(PlaytimeIndex.Filter.ALL) != total || index.count(PlaytimeIndex.Filter.ALL) != count) {
+            violation("index holds " + index.total(PlaytimeIndex.Filter.ALL) + "s in " + index.count(PlaytimeIndex.Filter.ALL) + " worlds, stored are " + total + "s in " + count);
+        }
+        if (index.total(PlaytimeIndex.Filter.LOCAL) + index.total(PlaytimeIndex.Filter.SERVER) != total) violation("index filters do not add up to its total");
+        long previous = Long.MAX_VALUE;
+        for (PlaytimeIndex.Entry entry : index.top(PlaytimeIndex.Filter.ALL, 100)) {
+            if (entry.seconds() > previous) violation("index top list is not sorted");
+            previous = entry.seconds();
+        }
+    }
+
+    private static String id(int world) {
+        return (world % 2 == 0 ? "local_" : "server_") + world;
+    }
+
+    private void violation(String message) {
+        if (violations++ < MAX_REPORTED) System.out.println("VIOLATION: " + message);
+    }
+}
@@ -0,0 +1,170 @@
+package de.mcjunky33;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import de.mcjunky33.core.ModData;
+import de.mcjunky33.core.StateCodec;
+import de.mcjunky33.core.WorldState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the old single pretty-printed JSON document with the per-world binary files, both
+ * in memory and on disk. The {@code file} benchmarks go through {@link DataStore}, with its
+ * temporary file, forced write, backup and atomic move for every world, against a directory
+ * that is filled once per trial. The encoded and on-disk sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistenceBenchmark {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    @Param({"10", "1000", "100000"})
+    public int worlds;
+
+    private ModData data;
+    private String currentId;
+    private WorldState current;
+    private String json;
+    private ByteBuffer[] encoded;
+    private Path dir;
+    private Path jsonPath;
+    private DataStore store;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        data = new ModData();
+        for (int i = 0; i < worlds; i++) {
+            WorldState state = new WorldState();
+            state.playtimeSeconds = 1000L * i;
+            state.timerSeconds = i;
+            state.timerRunning = (i & 1) == 0;
+            data.worldData.put((i % 3 == 0 ? "server_play.example" : "local_New World ") + i, state);
+        }
+        Map.Entry<String, WorldState> first = data.worldData.entrySet().iterator().next();
+        currentId = first.getKey();
+        current = first.getValue();
+        json = GSON.toJson(data);
+        encoded = new ByteBuffer[worlds + 1];
+        int i = 0;
+        for (WorldState state : data.worldData.values()) encoded[i++] = StateCodec.encodeWorld(state);
+        encoded[i] = StateCodec.encodeSettings(data);
+
+        dir = Files.createTempDirectory("showplaytime-bench");
+        jsonPath = dir.resolve("timer_config.json");
+        Files.writeString(jsonPath, json);
+        store = new DataStore(dir.resolve("showplaytime"), dir.resolve("missing.json"), GSON);
+        saveAll();
+
+        long binaryBytes = 0;
+        for (ByteBuffer buf : encoded) binaryBytes += buf.remaining();
+        long diskBytes = 0;
+        long files = 0;
+        try (Stream<Path> walk = Files.walk(dir.resolve("showplaytime"))) {
+            for (Path file : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                diskBytes += Files.size(file);
+                files++;
+            }
+        }
+        System.out.printf("%n%d worlds: json %d bytes, binary %d bytes (%d per world file), on disk %d bytes in %d files%n",
+                worlds, json.length(), binaryBytes, encoded[0].remaining(), diskBytes, files);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String jsonSaveAll() {
+        return GSON.toJson(data);
+    }
+
+    @Benchmark
+    public ModData jsonLoadAll() {
+        return GSON.fromJson(json, ModData.class);
+    }
+
+    @Benchmark
+    public void binarySaveAll(Blackhole bh) {
+        for (Map.Entry<String, WorldState> e : data.worldData.entrySet()) bh.consume(StateCodec.encodeWorld(e.getValue()));
+        bh.consume(StateCodec.encodeSettings(data));
+    }
+
+    @Benchmark
+    public void binaryLoadAll(Blackhole bh) throws IOException {
+        for (int i = 0; i < worlds; i++) bh.consume(StateCodec.decodeWorld(encoded[i].duplicate()));
+        bh.consume(StateCodec.decodeSettings(encoded[worlds].duplicate()));
+    }
+
+    // What a once-per-second save costs now: only the world that is being played.
+    @Benchmark
+    public ByteBuffer binarySaveCurrent() {
+        return StateCodec.encodeWorld(current);
+    }
+
+    // The old startup and save: the whole document read from and written to one file.
+    @Benchmark
+    public ModData jsonFileLoadAll() throws IOException {
+        try (Reader r = Files.newBufferedReader(jsonPath)) {
+            return GSON.fromJson(r, ModData.class);
+        }
+    }
+
+    @Benchmark
+    public void jsonFileSaveAll() throws IOException {
+        try (Writer w = Files.newBufferedWriter(jsonPath)) {
+            GSON.toJson(data, w);
+        }
+    }
+
+    // Startup now only reads the settings, worlds are read when they are joined.
+    @Benchmark
+    public ModData fileLoadSettings() {
+        return store.loadSettings();
+    }
+
+    @Benchmark
+    public WorldState fileLoadCurrent() {
+        return store.loadWorld(currentId);
+    }
+
+    @Benchmark
+    public void fileLoadAll(Blackhole bh) {
+        for (String id : data.worldData.keySet()) bh.consume(store.loadWorld(id));
+        bh.consume(store.loadSettings());
+    }
+
+    @Benchmark
+    public void fileSaveCurrent() {
+        store.saveWorld(currentId, current);
+        store.flush().join();
+    }
+
+    @Benchmark
+    public void fileSaveAll() {
+        saveAll();
+    }
+
+    private void saveAll() {
+        data.worldData.forEach(store::saveWorld);
+        store.saveSettings(data);
+        store.flush().join();
+    }
+}
@@ -0,0 +1,35 @@
+package de.mcjunky33;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.screens.Screen;
+
+import java.util.function.Consumer;
+
+/** Entry points for the client mixins, so the timer reacts to events instead of polling every tick. */
+public final class ClientHooks {
+
+    static Consumer<Boolean> pauseListener = paused -> {};
+    static Runnable statsListener = () -> {};
+
+    private static boolean paused = false;
+
+    private ClientHooks() {}
+
+    // Mirrors how Minecraft decides to pause the integrated server for the new screen.
+    public static void screenChanged(Minecraft client, Screen screen) {
+        boolean nowPaused = screen != null && screen.isPauseScreen()
+                && client.getSingleplayerServer() != null && !client.getSingleplayerServer().isPublished();
+        if (nowPaused == paused) return;
+        paused = nowPaused;
+        pauseListener.accept(nowPaused);
+    }
+
+    // A world starts and ends unpaused, whatever screen was open when the last one was left.
+    static void resetPaused() {
+        paused = false;
+    }
+
+    public static void statsReceived() {
+        statsListener.run();
+    }
+}
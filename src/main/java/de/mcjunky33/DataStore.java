@@ -0,0 +1,558 @@
+package de.mcjunky33;
+
+import com.google.gson.Gson;
+import de.mcjunky33.core.ModData;
+import de.mcjunky33.core.StateCodec;
+import de.mcjunky33.core.WorldState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Stores the global settings and every world's state in separate binary files, written by a
+ * background thread. Saves requested for a file while a write is pending replace the pending
+ * snapshot, so bursts of changes end up as a single write per file. The previous version of
+ * every file is kept as a backup and used when the current one turns out to be corrupt.
+ * <p>
+ * Several game instances may share the directory. Writes hold a lock on a lock file, which only
+ * the background thread ever waits for, and every file carries a version counter. A world file
+ * that another instance changed since the state being saved was read is merged instead of
+ * overwritten, and changes made by other instances are picked up through a {@link WatchService}.
+ * <p>
+ * Every queued snapshot keeps the version its state was based on when it was queued. Changes of
+ * other instances only reach the saved state once the listener has merged them, so that version
+ * is only moved on the listener's executor, in the order the changes were found.
+ */
+class DataStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("ShowPlayTime");
+    private static final long COALESCE_MILLIS = 2000;
+    private static final long MAX_FILE_SIZE = 1 << 20;
+    private static final String WORLD_SUFFIX = ".dat";
+    // Events for a file usually come in bursts, they are handled once things have settled.
+    private static final long WATCH_DELAY_MILLIS = 100;
+
+    /**
+     * Receives the changes of a world written by another instance, on the executor passed to
+     * {@link #watch}. Base is what the saved state of the world was based on until now.
+     */
+    interface WorldListener {
+        void changed(String id, WorldState base, WorldState updated);
+    }
+
+    // A version of a file and the state it held.
+    private record Synced(long version, WorldState state) {}
+
+    // A queued write and what its state was based on when it was queued.
+    private record Snapshot(ByteBuffer buffer, Synced base) {}
+
+    // A write of this instance. Snapshots based on an older version already contain its change
+    // from before to after, but not what the file held on top of that.
+    private record Written(long version, WorldState before, WorldState after) {}
+
+    private final Path settingsPath;
+    private final Path worldsDir;
+    private final Path historyDir;
+    private final Path legacyPath;
+    private final Path lockPath;
+    private final Gson gson;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ShowPlayTime-Saver");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<Path, Snapshot> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // What this instance last read from or wrote to a file.
+    private final Map<Path, Synced> synced = new ConcurrentHashMap<>();
+    // What the saved state of a world is based on, only changed on the listener's executor.
+    private final Map<Path, Synced> applied = new ConcurrentHashMap<>();
+    // Guarded by writeLock.
+    private final Map<Path, List<Written>> written = new HashMap<>();
+    private final Set<Path> changed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean changeScheduled = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    private volatile Executor listenerExecutor = Runnable::run;
+    private volatile WorldListener worldListener;
+    private volatile Consumer<ModData> settingsListener;
+    private WatchService watchService;
+
+    DataStore(Path dir, Path legacyPath, Gson gson) {
+        this.settingsPath = dir.resolve("settings.dat");
+        this.worldsDir = dir.resolve("worlds");
+        this.historyDir = dir.resolve("history");
+        this.legacyPath = legacyPath;
+        this.lockPath = dir.resolve(".lock");
+        this.gson = gson;
+    }
+
+    // Starts reporting changes other instances make to the settings and the worlds. The listeners
+    // run on the executor, which has to be the thread that loads and saves the worlds.
+    void watch(Executor executor, WorldListener worlds, Consumer<ModData> settings) {
+        listenerExecutor = executor;
+        worldListener = worlds;
+        settingsListener = settings;
+        try {
+            Files.createDirectories(worldsDir);
+            watchService = settingsPath.getFileSystem().newWatchService();
+            settingsPath.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            worldsDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.error("Failed to watch {} for changes of other instances", settingsPath.getParent(), e);
+            return;
+        }
+        Thread watcher = new Thread(this::pollChanges, "ShowPlayTime-Watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    ModData loadSettings() {
+        long start = PerfStats.LOAD.begin();
+        if (!Files.exists(settingsPath) && Files.exists(legacyPath)) migrateLegacy();
+        ModData loaded = read(settingsPath, buf -> {
+            synced.put(settingsPath, new Synced(StateCodec.version(buf), null));
+            return StateCodec.decodeSettings(buf);
+        });
+        // Without a file the defaults are in use, other instances' settings still replace them.
+        if (loaded == null) synced.put(settingsPath, new Synced(0, null));
+        PerfStats.LOAD.end(start);
+        return loaded != null ? loaded : new ModData();
+    }
+
+    WorldState loadWorld(String id) {
+        long start = PerfStats.LOAD.begin();
+        WorldState loaded = readWorld(id);
+        PerfStats.LOAD.end(start);
+        return loaded != null ? loaded : new WorldState();
+    }
+
+    private WorldState readWorld(String id) {
+        Path path = worldPath(id);
+        Snapshot queued = pending.get(path);
+        if (queued != null) {
+            try {
+                WorldState state = StateCodec.decodeWorld(queued.buffer().duplicate());
+                if (queued.base() != null) applied.put(path, queued.base());
+                return state;
+            } catch (IOException e) {
+                LOGGER.error("Failed to decode queued state of {}", id, e);
+            }
+        }
+        WorldState loaded = read(path, buf -> {
+            Synced read = new Synced(StateCodec.version(buf), StateCodec.decodeWorld(buf.duplicate()));
+            synced.put(path, read);
+            applied.put(path, read);
+            return StateCodec.decodeWorld(buf);
+        });
+        if (loaded == null) {
+            Synced empty = new Synced(0, new WorldState());
+            synced.put(path, empty);
+            applied.put(path, empty);
+        }
+        return loaded;
+    }
+
+    void saveSettings(ModData data) {
+        save(settingsPath, StateCodec.encodeSettings(data));
+    }
+
+    void saveWorld(String id, WorldState state) {
+        save(worldPath(id), StateCodec.encodeWorld(state));
+    }
+
+    CompletableFuture<Integer> exportJson(Path target) {
+        return CompletableFuture.supplyAsync(() -> {
+            drain();
+            ModData export = read(settingsPath, StateCodec::decodeSettings);
+            if (export == null) export = new ModData();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(worldsDir, "*" + WORLD_SUFFIX)) {
+                for (Path file : files) {
+                    WorldState state = read(file, StateCodec::decodeWorld);
+                    if (state != null) export.worldData.put(worldId(file), state);
+                }
+            } catch (NoSuchFileException ignored) {
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            try (Writer w = Files.newBufferedWriter(target)) {
+                gson.toJson(export, w);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return export.worldData.size();
+        }, executor);
+    }
+
+    // Playtime of every stored world, read from just the start of each file. Worlds with a
+    // pending write report the pending value.
+    CompletableFuture<Map<String, Long>> scanPlaytimes() {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, Long> playtimes = new HashMap<>();
+            ByteBuffer buf = ByteBuffer.allocate(StateCodec.PEEK_SIZE);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(worldsDir, "*" + WORLD_SUFFIX)) {
+                for (Path file : files) {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        buf.clear();
+                        while (buf.hasRemaining() && channel.read(buf) >= 0) {}
+                        playtimes.put(worldId(file), StateCodec.peekPlaytime(buf.flip()));
+                    } catch (IOException e) {
+                        LOGGER.warn("Skipping unreadable world file {}", file, e);
+                    }
+                }
+            } catch (NoSuchFileException ignored) {
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pending.forEach((path, snapshot) -> {
+                if (!path.getParent().equals(worldsDir)) return;
+                try {
+                    playtimes.put(worldId(path), StateCodec.peekPlaytime(snapshot.buffer().duplicate()));
+                } catch (IOException e) {
+                    LOGGER.warn("Skipping queued state of {}", path, e);
+                }
+            });
+            return playtimes;
+        }, executor);
+    }
+
+    CompletableFuture<ModData> importJson(Path source) {
+        return CompletableFuture.supplyAsync(() -> {
+            ModData imported;
+            try (Reader r = Files.newBufferedReader(source)) {
+                imported = gson.fromJson(r, ModData.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (imported == null) throw new IllegalStateException("Empty file " + source);
+            if (imported.worldData == null) imported.worldData = new HashMap<>();
+            if (imported.colorList == null || imported.colorList.isEmpty()) imported.resetVisuals();
+            drain();
+            imported.worldData.forEach((id, state) -> write(worldPath(id), StateCodec.encodeWorld(state), null));
+            write(settingsPath, StateCodec.encodeSettings(imported), null);
+            return imported;
+        }, executor);
+    }
+
+    // Writes everything pending now instead of after the coalescing delay. The future completes
+    // once it is on disk.
+    CompletableFuture<Void> flush() {
+        if (pending.isEmpty()) return CompletableFuture.completedFuture(null);
+        return CompletableFuture.runAsync(this::drain, executor);
+    }
+
+    void close() {
+        flush();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.error("Failed to stop watching {}", settingsPath.getParent(), e);
+            }
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) LOGGER.warn("Timed out while saving {}", settingsPath.getParent());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void save(Path path, ByteBuffer buffer) {
+        Synced base = applied.get(path);
+        if (executor.isShutdown()) {
+            write(path, buffer, base);
+            return;
+        }
+        pending.put(path, new Snapshot(buffer, base));
+        if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(this::drain, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        for (Path path : pending.keySet()) {
+            Snapshot snapshot = pending.remove(path);
+            if (snapshot != null) write(path, snapshot.buffer(), snapshot.base());
+        }
+    }
+
+    private void migrateLegacy() {
+        ModData legacy;
+        try (Reader r = Files.newBufferedReader(legacyPath)) {
+            legacy = gson.fromJson(r, ModData.class);
+        } catch (Exception e) {
+            LOGGER.error("Failed to read {}", legacyPath, e);
+            return;
+        }
+        if (legacy == null) return;
+        if (legacy.worldData != null) legacy.worldData.forEach((id, state) -> write(worldPath(id), StateCodec.encodeWorld(state), null));
+        write(settingsPath, StateCodec.encodeSettings(legacy), null);
+        try {
+            Files.move(legacyPath, legacyPath.resolveSibling(legacyPath.getFileName() + ".old"), StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.info("Migrated {} worlds from {}", legacy.worldData != null ? legacy.worldData.size() : 0, legacyPath);
+        } catch (IOException e) {
+            LOGGER.error("Failed to move {} out of the way", legacyPath, e);
+        }
+    }
+
+    private <T> T read(Path path, Decoder<T> decoder) {
+        Path backup = backupPath(path);
+        for (Path candidate : new Path[] { path, backup }) {
+            if (!Files.exists(candidate)) continue;
+            try (FileChannel channel = FileChannel.open(candidate, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > MAX_FILE_SIZE) throw new IOException("File too large: " + size);
+                ByteBuffer buf = ByteBuffer.allocate((int) size);
+                while (buf.hasRemaining() && channel.read(buf) >= 0) {}
+                T value = decoder.decode(buf.flip());
+                if (candidate == backup) LOGGER.warn("Restored {} from its backup", path);
+                return value;
+            } catch (IOException e) {
+                LOGGER.error("Failed to read {}", candidate, e);
+            }
+        }
+        return null;
+    }
+
+    // Writes a snapshot whose state was based on base, replacing the file if base is null. What
+    // the file holds on top of the base and this instance's earlier writes is merged in. Changes
+    // of another instance found here are passed on to the listener like those found by watching.
+    private void write(Path path, ByteBuffer snapshot, Synced base) {
+        long start = PerfStats.SAVE.begin();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        boolean world = path.getParent().equals(worldsDir);
+        Synced other = null, done = null;
+        WorldState otherUpdated = null;
+        synchronized (writeLock) {
+            try {
+                Files.createDirectories(path.getParent());
+                try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock lock = lockChannel.lock()) {
+                    List<Written> own = written.computeIfAbsent(path, p -> new ArrayList<>());
+                    if (base == null) own.clear();
+                    else own.removeIf(w -> w.version() <= base.version());
+                    Synced effective = rebase(base, own);
+                    long baseVersion = effective != null ? effective.version() : 0;
+                    long diskVersion = readVersion(path);
+                    WorldState ours = null;
+                    if (world && effective != null && diskVersion != baseVersion) {
+                        WorldState disk = read(path, StateCodec::decodeWorld);
+                        if (disk != null) {
+                            ours = StateCodec.decodeWorld(snapshot.duplicate());
+                            WorldState merged = StateCodec.decodeWorld(snapshot.duplicate());
+                            merged.mergeFrom(effective.state(), disk);
+                            snapshot = StateCodec.encodeWorld(merged);
+                            Synced last = synced.get(path);
+                            if (last == null || last.version() != diskVersion) {
+                                other = new Synced(diskVersion, disk);
+                                otherUpdated = copy(disk);
+                            }
+                        }
+                    }
+                    long version = Math.max(diskVersion, baseVersion) + 1;
+                    StateCodec.setVersion(snapshot, version);
+                    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        ByteBuffer buf = snapshot.duplicate();
+                        while (buf.hasRemaining()) channel.write(buf);
+                        channel.force(false);
+                    }
+                    if (Files.exists(path)) move(path, backupPath(path));
+                    move(tmp, path);
+                    done = new Synced(version, world ? StateCodec.decodeWorld(snapshot.duplicate()) : null);
+                    synced.put(path, done);
+                    if (world && effective != null) own.add(new Written(version, effective.state(), ours != null ? ours : done.state()));
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to write {}", path, e);
+                other = null;
+                done = null;
+            } finally {
+                PerfStats.SAVE.end(start);
+            }
+        }
+        if (other != null) reportChange(path, other, otherUpdated);
+        if (world && done != null) {
+            Synced result = done;
+            // Queued behind the changes merged into the file, so the state has them by then.
+            listenerExecutor.execute(() -> {
+                Synced current = applied.get(path);
+                if (current == null || result.version() > current.version()) applied.put(path, result);
+            });
+        }
+    }
+
+    // The base with this instance's later writes applied, as the snapshot contains those too.
+    private static Synced rebase(Synced base, List<Written> own) throws IOException {
+        if (base == null || own.isEmpty()) return base;
+        WorldState state = copy(base.state());
+        for (Written w : own) state.mergeFrom(w.before(), w.after());
+        return new Synced(base.version(), state);
+    }
+
+    // Passes a world another instance wrote to the listener, which merges what changed since the
+    // version the saved state is based on, so changes found twice are only merged once.
+    private void reportChange(Path path, Synced disk, WorldState updated) {
+        listenerExecutor.execute(() -> {
+            Synced current = applied.get(path);
+            WorldListener listener = worldListener;
+            if (current == null || listener == null || disk.version() <= current.version()) return;
+            applied.put(path, disk);
+            listener.changed(worldId(path), current.state(), updated);
+        });
+    }
+
+    // Reads just the header of a file for its version, 0 if it is missing or unreadable.
+    private static long readVersion(Path path) {
+        if (!Files.exists(path)) return 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(StateCodec.headerSize());
+            while (header.hasRemaining() && channel.read(header) >= 0) {}
+            return StateCodec.version(header.flip());
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void pollChanges() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (!(event.context() instanceof Path name) || !name.toString().endsWith(WORLD_SUFFIX)) continue;
+                    changed.add(dir.resolve(name));
+                }
+                key.reset();
+                if (!changed.isEmpty() && changeScheduled.compareAndSet(false, true) && !executor.isShutdown()) {
+                    executor.schedule(this::applyChanges, WATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        } catch (RejectedExecutionException ignored) {
+            // Shutting down.
+        }
+    }
+
+    // Runs on the saver thread, so it never races with this instance's own writes. Files whose
+    // version is the one this instance last saw were written by it and are skipped, as are files
+    // with a pending write, which merges them anyway.
+    private void applyChanges() {
+        changeScheduled.set(false);
+        for (Path path : changed) {
+            changed.remove(path);
+            Synced base = synced.get(path);
+            if (base == null || pending.containsKey(path) || readVersion(path) == base.version()) continue;
+            if (path.equals(settingsPath)) {
+                ModData updated = read(path, buf -> {
+                    synced.put(path, new Synced(StateCodec.version(buf), null));
+                    return StateCodec.decodeSettings(buf);
+                });
+                Consumer<ModData> listener = settingsListener;
+                if (updated != null && listener != null) listenerExecutor.execute(() -> listener.accept(updated));
+            } else if (base.state() != null) {
+                WorldState updated = read(path, buf -> {
+                    synced.put(path, new Synced(StateCodec.version(buf), StateCodec.decodeWorld(buf.duplicate())));
+                    return StateCodec.decodeWorld(buf);
+                });
+                if (updated != null) reportChange(path, synced.get(path), updated);
+            }
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static WorldState copy(WorldState state) throws IOException {
+        return StateCodec.decodeWorld(StateCodec.encodeWorld(state));
+    }
+
+    private static Path backupPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".bak");
+    }
+
+    Path historyPath(String id) {
+        return historyDir.resolve(fileName(id) + ".log");
+    }
+
+    private Path worldPath(String id) {
+        return worldsDir.resolve(fileName(id) + WORLD_SUFFIX);
+    }
+
+    private static String worldId(Path worldPath) {
+        String name = worldPath.getFileName().toString();
+        return worldId(name.substring(0, name.length() - WORLD_SUFFIX.length()));
+    }
+
+    // World ids contain level names and server addresses, so anything but a safe set of
+    // characters is percent-encoded to keep the file name valid and reversible.
+    static String fileName(String id) {
+        StringBuilder sb = new StringBuilder(id.length());
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '-' || b == '.') {
+                sb.append((char) b);
+            } else {
+                sb.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16))).append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return sb.toString();
+    }
+
+    static String worldId(String fileName) {
+        byte[] bytes = new byte[fileName.length()];
+        int n = 0;
+        for (int i = 0; i < fileName.length(); i++) {
+            char ch = fileName.charAt(i);
+            if (ch == '%' && i + 2 < fileName.length()) {
+                bytes[n++] = (byte) Integer.parseInt(fileName, i + 1, i + 3, 16);
+                i += 2;
+            } else {
+                bytes[n++] = (byte) ch;
+            }
+        }
+        return new String(bytes, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private interface Decoder<T> {
+        T decode(ByteBuffer buf) throws IOException;
+    }
+}
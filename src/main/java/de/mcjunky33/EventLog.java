@@ -0,0 +1,206 @@
+package de.mcjunky33;
+
+import de.mcjunky33.core.TimeKeeper;
+import de.mcjunky33.core.WorldState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Append-only, memory-mapped log of a world's timer events. Records have a fixed size, so an
+ * append is a few writes into the mapping followed by bumping the record count in the header.
+ * The mapping grows by doubling, and queries stream the file in chunks instead of loading it.
+ * <p>
+ * Game instances sharing the directory can append to the same log, e.g. two accounts on one
+ * server. Appends hold a file lock and take the record count from the header, never from memory.
+ */
+final class EventLog implements Closeable {
+
+    // Stored by ordinal, new types go at the end.
+    enum Type { JOIN, LEAVE, START, PAUSE, RESUME, STOP, FINISH, SPLIT, CORRECT }
+
+    static final int MAX_NAME_BYTES = 38;
+
+    private static final int MAGIC = 0x5350544C; // "SPTL"
+    private static final short VERSION = 1;
+    private static final int RECORD_SIZE = 64;
+    private static final int HEADER_SIZE = RECORD_SIZE;
+    private static final int COUNT_OFFSET = 8;
+    private static final int INITIAL_RECORDS = 1024;
+    private static final int SCAN_RECORDS = 1024;
+    // The lock is taken on a byte far past the end of the file, so it never covers mapped data.
+    private static final long LOCK_POSITION = Long.MAX_VALUE - 1;
+
+    private final FileChannel channel;
+    private final long baseEpochNanos = System.currentTimeMillis() * 1_000_000L;
+    private final long baseNanoTime = System.nanoTime();
+    private MappedByteBuffer map;
+    private long count;
+
+    private EventLog(FileChannel channel, long count) throws IOException {
+        this.channel = channel;
+        this.count = count;
+        remap(Math.max(HEADER_SIZE + (count + INITIAL_RECORDS) * RECORD_SIZE, channel.size()));
+    }
+
+    static EventLog open(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try (FileLock ignored = lock(channel)) {
+            long count = 0;
+            if (channel.size() >= HEADER_SIZE) {
+                count = readCount(channel);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE).putLong(0).rewind();
+                channel.write(header, 0);
+            }
+            return new EventLog(channel, count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    void append(Type type, WorldState state, String name) {
+        byte[] bytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int len = Math.min(bytes.length, MAX_NAME_BYTES);
+        append(type, state, pos -> {
+            map.put(pos + 25, (byte) len);
+            map.put(pos + 26, bytes, 0, len);
+        });
+    }
+
+    // The playtime of the world was replaced, e.g. by the server's statistic. The record holds the
+    // playtime before the change where others hold the name, so history() can leave the jump out.
+    void appendCorrection(WorldState state, long previousPlaytimeNanos) {
+        append(Type.CORRECT, state, pos -> {
+            map.put(pos + 25, (byte) 0);
+            map.putLong(pos + 26, previousPlaytimeNanos);
+        });
+    }
+
+    // Writes the fields every record has, then the type specific ones, then bumps the count.
+    private void append(Type type, WorldState state, IntConsumer fields) {
+        try (FileLock ignored = lock(channel)) {
+            count = Math.max(0, map.getLong(COUNT_OFFSET));
+            long offset = HEADER_SIZE + count * RECORD_SIZE;
+            // Another instance may have grown the file past this mapping.
+            if (offset + RECORD_SIZE > map.capacity()) remap(Math.max((long) map.capacity() * 2, channel.size()));
+            int pos = (int) offset;
+            map.putLong(pos, baseEpochNanos + (System.nanoTime() - baseNanoTime));
+            map.putLong(pos + 8, playtimeNanos(state));
+            map.putLong(pos + 16, state.timerSeconds * TimeKeeper.NANOS_PER_SECOND + state.timerNanos);
+            map.put(pos + 24, (byte) type.ordinal());
+            fields.accept(pos);
+            map.putLong(COUNT_OFFSET, ++count);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not append to event log", e);
+        }
+    }
+
+    static long playtimeNanos(WorldState state) {
+        return Math.max(state.playtimeSeconds, 0) * TimeKeeper.NANOS_PER_SECOND + state.playtimeNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    private static FileLock lock(FileChannel channel) throws IOException {
+        return channel.lock(LOCK_POSITION, 1, false);
+    }
+
+    private void remap(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) throw new IOException("Event log too large");
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static long readCount(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {}
+        header.flip();
+        if (header.getInt() != MAGIC) throw new IOException("Bad magic");
+        if (header.getShort() > VERSION) throw new IOException("Unsupported event log version");
+        if (header.getShort() != RECORD_SIZE) throw new IOException("Unexpected record size");
+        long count = header.getLong(COUNT_OFFSET);
+        long fits = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        return Math.max(0, Math.min(count, fits));
+    }
+
+    /** Per-day playtime and session counts. Only one entry per day is kept in memory. */
+    static final class History {
+        final Map<LocalDate, long[]> days = new TreeMap<>();
+        long sessions;
+        long totalNanos;
+
+        private void addSession(long startEpochNanos, long nanos, ZoneId zone) {
+            LocalDate day = Instant.ofEpochSecond(0, startEpochNanos).atZone(zone).toLocalDate();
+            long[] entry = days.computeIfAbsent(day, d -> new long[2]);
+            entry[0] += nanos;
+            entry[1]++;
+            sessions++;
+            totalNanos += nanos;
+        }
+    }
+
+    // A session runs from a JOIN to the next LEAVE. A session cut short by a crash ends at
+    // the last event logged before the next JOIN. Its length is the playtime counted in between,
+    // without the jumps of CORRECT records.
+    static History history(Path path, ZoneId zone) throws IOException {
+        History history = new History();
+        if (!Files.exists(path)) return history;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) return history;
+            long count = readCount(channel);
+            ByteBuffer buf = ByteBuffer.allocate(SCAN_RECORDS * RECORD_SIZE);
+            // The session's playtime up to the last correction, and the playtime it continued from.
+            long sessionStart = -1, sessionNanos = 0, segmentStart = 0, lastPlaytime = 0;
+            for (long read = 0; read < count; ) {
+                buf.clear();
+                int records = (int) Math.min(SCAN_RECORDS, count - read);
+                buf.limit(records * RECORD_SIZE);
+                long position = HEADER_SIZE + read * RECORD_SIZE;
+                while (buf.hasRemaining() && channel.read(buf, position + buf.position()) >= 0) {}
+                for (int i = 0; i < records; i++) {
+                    int pos = i * RECORD_SIZE;
+                    long time = buf.getLong(pos);
+                    long playtime = buf.getLong(pos + 8);
+                    int type = buf.get(pos + 24);
+                    if (type == Type.JOIN.ordinal()) {
+                        if (sessionStart >= 0) history.addSession(sessionStart, sessionNanos + Math.max(0, lastPlaytime - segmentStart), zone);
+                        sessionStart = time;
+                        sessionNanos = 0;
+                        segmentStart = playtime;
+                    } else if (type == Type.CORRECT.ordinal() && sessionStart >= 0) {
+                        sessionNanos += Math.max(0, buf.getLong(pos + 26) - segmentStart);
+                        segmentStart = playtime;
+                    } else if (type == Type.LEAVE.ordinal() && sessionStart >= 0) {
+                        history.addSession(sessionStart, sessionNanos + Math.max(0, playtime - segmentStart), zone);
+                        sessionStart = -1;
+                    }
+                    lastPlaytime = playtime;
+                }
+                read += records;
+            }
+            if (sessionStart >= 0) history.addSession(sessionStart, sessionNanos + Math.max(0, lastPlaytime - segmentStart), zone);
+        }
+        return history;
+    }
+}
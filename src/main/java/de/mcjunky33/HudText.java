@@ -0,0 +1,88 @@
+package de.mcjunky33;
+
+import de.mcjunky33.core.Gradient;
+import de.mcjunky33.core.TimeFormat;
+import net.minecraft.client.gui.Font;
+import net.minecraft.network.chat.Style;
+import net.minecraft.network.chat.TextColor;
+import net.minecraft.util.FormattedCharSequence;
+import net.minecraft.util.FormattedCharSink;
+
+import java.util.List;
+
+/**
+ * One animated gradient line of the HUD. The formatted text, its width and the styles of the
+ * gradient are kept until the displayed value or the look changes, and the per-character styles
+ * are only recomputed when the animation phase moves on, so drawing a frame allocates nothing.
+ */
+class HudText implements FormattedCharSequence {
+
+    private static final int STEPS = 256;
+    private static final long CYCLE_MILLIS = 3000L;
+
+    private final Style[] styles = new Style[STEPS];
+    private Style[] charStyles = new Style[0];
+    private String text = "";
+    private String label = "";
+    private long seconds = Long.MIN_VALUE;
+    private int width = -1;
+    private int phase = -1;
+
+    HudText() {
+        setStyle(List.of(0xFFFFFF), true, false, false);
+    }
+
+    void setStyle(List<Integer> colorList, boolean bold, boolean italic, boolean underlined) {
+        int[] table = Gradient.table(Gradient.toArray(colorList), STEPS);
+        Style base = Style.EMPTY.withBold(bold).withItalic(italic).withUnderlined(underlined);
+        for (int i = 0; i < STEPS; i++) styles[i] = base.withColor(TextColor.fromRgb(table[i]));
+        width = -1;
+        phase = -1;
+    }
+
+    // Text put in front of the time, e.g. the name of a named timer.
+    void setLabel(String label) {
+        if (label.equals(this.label)) return;
+        this.label = label;
+        seconds = Long.MIN_VALUE;
+    }
+
+    void setTime(long seconds) {
+        if (seconds == this.seconds) return;
+        this.seconds = seconds;
+        replaceText(label.isEmpty() ? TimeFormat.format(seconds) : label + TimeFormat.format(seconds));
+    }
+
+    void setText(String text) {
+        seconds = Long.MIN_VALUE;
+        if (!text.equals(this.text)) replaceText(text);
+    }
+
+    private void replaceText(String text) {
+        if (text.length() != this.text.length()) charStyles = new Style[text.length()];
+        this.text = text;
+        width = -1;
+        phase = -1;
+    }
+
+    int width(Font font) {
+        if (width < 0) width = font.width(this);
+        return width;
+    }
+
+    void animate(long millis) {
+        int p = (int) ((millis % CYCLE_MILLIS) * STEPS / CYCLE_MILLIS);
+        if (p == phase) return;
+        phase = p;
+        int len = text.length();
+        for (int i = 0; i < len; i++) charStyles[i] = styles[(i * STEPS / len + p) % STEPS];
+    }
+
+    @Override
+    public boolean accept(FormattedCharSink sink) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!sink.accept(i, charStyles[i], text.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,159 @@
+package de.mcjunky33;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings and allocations of the mod's hot paths. Recording is off by default, in which case
+ * {@link Probe#begin()} and {@link Probe#end(long)} only read a flag.
+ */
+final class PerfStats {
+
+    static volatile boolean enabled = false;
+
+    static final Probe HUD = new Probe("hud");
+    static final Probe TICK = new Probe("tick");
+    static final Probe SAVE = new Probe("save");
+    static final Probe LOAD = new Probe("load");
+    static final List<Probe> PROBES = List.of(HUD, TICK, SAVE, LOAD);
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private PerfStats() {}
+
+    static void reset() {
+        for (Probe probe : PROBES) probe.reset();
+    }
+
+    // p50/p99/max of every probe on one line, for the debug HUD.
+    static String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Probe probe : PROBES) {
+            if (!sb.isEmpty()) sb.append(" | ");
+            sb.append(probe.name).append(' ').append(formatNanos(probe.nanos.percentile(0.5)))
+                    .append('/').append(formatNanos(probe.nanos.percentile(0.99)))
+                    .append('/').append(formatNanos(probe.nanos.max()));
+        }
+        return sb.toString();
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos < 1_000) return nanos + "ns";
+        if (nanos < 1_000_000) return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1e6);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()) {
+            sun.setThreadAllocatedMemoryEnabled(true);
+            return sun;
+        }
+        return null;
+    }
+
+    /**
+     * One instrumented code path. A probe may be entered from several threads at once, e.g. saves
+     * run on the saver thread but also on the client thread while shutting down. Allocations are
+     * counted per thread, so the count at {@link #begin()} is kept per thread as well.
+     */
+    static final class Probe {
+        final String name;
+        final Histogram nanos = new Histogram();
+        private final AtomicLong allocated = new AtomicLong();
+        private final ThreadLocal<long[]> allocStart = ThreadLocal.withInitial(() -> new long[1]);
+
+        private Probe(String name) {
+            this.name = name;
+        }
+
+        long begin() {
+            if (!enabled) return 0;
+            allocStart.get()[0] = allocatedBytes();
+            return System.nanoTime();
+        }
+
+        void end(long start) {
+            if (start == 0) return;
+            nanos.record(System.nanoTime() - start);
+            allocated.addAndGet(allocatedBytes() - allocStart.get()[0]);
+        }
+
+        long allocatedPerCall() {
+            long count = nanos.count();
+            return count == 0 ? 0 : allocated.get() / count;
+        }
+
+        void reset() {
+            nanos.reset();
+            allocated.set(0);
+        }
+    }
+
+    /**
+     * Fixed-size log-linear histogram: exact below 8, then four buckets per power of two,
+     * which keeps every bucket within 25% of the values it holds.
+     */
+    static final class Histogram {
+        private static final int BUCKETS = 8 + 60 * 4;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            if (value < 0) value = 0;
+            counts.incrementAndGet(bucket(value));
+            count.incrementAndGet();
+            long m;
+            while (value > (m = max.get()) && !max.compareAndSet(m, value)) {}
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        long percentile(double p) {
+            long total = count.get();
+            if (total == 0) return 0;
+            long target = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= target) return Math.min(lowerBound(i + 1) - 1, max.get());
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+            count.set(0);
+            max.set(0);
+        }
+
+        static int bucket(long value) {
+            if (value < 8) return (int) value;
+            int exp = 63 - Long.numberOfLeadingZeros(value);
+            return 8 + (exp - 3) * 4 + (int) ((value >>> (exp - 2)) & 3);
+        }
+
+        static long lowerBound(int bucket) {
+            if (bucket < 8) return bucket;
+            int exp = (bucket - 8) / 4 + 3;
+            if (exp > 62) return Long.MAX_VALUE;
+            return (1L << exp) | ((long) ((bucket - 8) % 4) << (exp - 2));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package de.mcjunky33;
+
+import de.mcjunky33.core.Clock;
+import de.mcjunky33.core.TimeKeeper;
+import de.mcjunky33.core.WorldState;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.stats.Stats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server side of the playtime sync. Every player is resynced once per {@link #SYNC_INTERVAL_TICKS},
+ * spread over the interval so each tick only handles a slice of the player list. Shared timer
+ * changes go out to everyone on the next tick, at most once per tick. Playtime is only sent by
+ * dedicated servers: in singleplayer the statistic counts ticks, which fall behind the client's
+ * own wall-clock count whenever the integrated server lags.
+ */
+class PlaytimeSync {
+
+    static final int SYNC_INTERVAL_TICKS = 200;
+
+    private final Map<UUID, Sent> sent = new ConcurrentHashMap<>();
+    private final TimeKeeper timeKeeper = new TimeKeeper(Clock.SYSTEM);
+    final WorldState sharedTimer = new WorldState();
+    private int timerVersion = 0;
+    private int broadcastVersion = 0;
+    // Tick within the sync interval, wrapped so it can never overflow.
+    private int tick = 0;
+
+    // What a player was last sent, so unchanged parts can be left out.
+    private static final class Sent {
+        long playtime = -1;
+        int timerVersion = -1;
+    }
+
+    void timerChanged() {
+        timerVersion++;
+    }
+
+    void onJoin(ServerPlayer player, MinecraftServer server) {
+        sent.put(player.getUUID(), new Sent());
+        send(player, true, server.isDedicatedServer());
+    }
+
+    void onLeave(ServerPlayer player) {
+        sent.remove(player.getUUID());
+    }
+
+    void onTick(MinecraftServer server) {
+        if ((timeKeeper.advance(sharedTimer) & TimeKeeper.TIMER_FINISHED) != 0) timerChanged();
+        if (!sharedTimer.timerRunning) timeKeeper.stop();
+
+        List<ServerPlayer> players = server.getPlayerList().getPlayers();
+        if (broadcastVersion != timerVersion) {
+            broadcastVersion = timerVersion;
+            for (ServerPlayer player : players) send(player, false, false);
+        }
+        int slot = tick;
+        tick = (tick + 1) % SYNC_INTERVAL_TICKS;
+        boolean playtime = server.isDedicatedServer();
+        for (int i = slot; i < players.size(); i += SYNC_INTERVAL_TICKS) send(players.get(i), true, playtime);
+    }
+
+    // The periodic resync also sends a running timer and, if asked to and it changed, the playtime.
+    private void send(ServerPlayer player, boolean periodic, boolean withPlaytime) {
+        if (!ServerPlayNetworking.canSend(player, PlaytimeSyncPayload.TYPE)) return;
+        Sent last = sent.computeIfAbsent(player.getUUID(), id -> new Sent());
+        int flags = 0;
+        long playtime = player.getStats().getValue(Stats.CUSTOM.get(Stats.PLAY_TIME)) / 20;
+        if (periodic && withPlaytime && playtime != last.playtime) flags |= PlaytimeSyncPayload.HAS_PLAYTIME;
+        if (last.timerVersion != timerVersion || (periodic && sharedTimer.timerRunning)) {
+            flags |= PlaytimeSyncPayload.HAS_TIMER;
+            if (sharedTimer.timerRunning) flags |= PlaytimeSyncPayload.TIMER_RUNNING;
+            if (sharedTimer.timerBackwards) flags |= PlaytimeSyncPayload.TIMER_BACKWARDS;
+        }
+        if (flags == 0) return;
+        if ((flags & PlaytimeSyncPayload.HAS_PLAYTIME) != 0) last.playtime = playtime;
+        if ((flags & PlaytimeSyncPayload.HAS_TIMER) != 0) last.timerVersion = timerVersion;
+        long timerMillis = (sharedTimer.timerSeconds * TimeKeeper.NANOS_PER_SECOND + sharedTimer.timerNanos) / 1_000_000L;
+        ServerPlayNetworking.send(player, new PlaytimeSyncPayload(flags, playtime, timerMillis));
+    }
+}
@@ -0,0 +1,43 @@
+package de.mcjunky33;
+
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Server to client update. Only the parts flagged in {@code flags} are meaningful, the others
+ * are left out of the packet, and all numbers are written as var-longs.
+ */
+record PlaytimeSyncPayload(int flags, long playtimeSeconds, long timerMillis) implements CustomPacketPayload {
+
+    static final int HAS_PLAYTIME = 1;
+    static final int HAS_TIMER = 2;
+    static final int TIMER_RUNNING = 4;
+    static final int TIMER_BACKWARDS = 8;
+
+    static final CustomPacketPayload.Type<PlaytimeSyncPayload> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath("showplaytimer", "sync"));
+    static final StreamCodec<FriendlyByteBuf, PlaytimeSyncPayload> CODEC = CustomPacketPayload.codec(PlaytimeSyncPayload::write, PlaytimeSyncPayload::read);
+
+    boolean has(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeByte(flags);
+        if (has(HAS_PLAYTIME)) buf.writeVarLong(playtimeSeconds);
+        if (has(HAS_TIMER)) buf.writeVarLong(timerMillis);
+    }
+
+    private static PlaytimeSyncPayload read(FriendlyByteBuf buf) {
+        int flags = buf.readUnsignedByte();
+        long playtime = (flags & HAS_PLAYTIME) != 0 ? buf.readVarLong() : 0;
+        long timer = (flags & HAS_TIMER) != 0 ? buf.readVarLong() : 0;
+        return new PlaytimeSyncPayload(flags, playtime, timer);
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
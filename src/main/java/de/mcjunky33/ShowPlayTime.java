@@ -4,148 +4,370 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.mojang.brigadier.arguments.BoolArgumentType;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import de.mcjunky33.core.Clock;
+import de.mcjunky33.core.ModData;
+import de.mcjunky33.core.NamedTimer;
+import de.mcjunky33.core.PlaytimeIndex;
+import de.mcjunky33.core.StatReconciler;
+import de.mcjunky33.core.TimeFormat;
+import de.mcjunky33.core.TimeKeeper;
+import de.mcjunky33.core.TimerSession;
+import de.mcjunky33.core.WorldState;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.commands.SharedSuggestionProvider;
 import net.minecraft.commands.arguments.ColorArgument;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.network.chat.Component;
-import net.minecraft.network.chat.MutableComponent;
-import net.minecraft.network.chat.Style;
-import net.minecraft.network.chat.TextColor;
+import net.minecraft.network.protocol.game.ServerboundClientCommandPacket;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.sounds.SoundEvent;
 import net.minecraft.sounds.SoundSource;
 import net.minecraft.stats.Stats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.nio.file.Files;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 public class ShowPlayTime implements ClientModInitializer {
 
-    private static final Path CONFIG_PATH = FabricLoader.getInstance().getConfigDir().resolve("timer_config.json");
+    private static final Logger LOGGER = LoggerFactory.getLogger("ShowPlayTime");
+    private static final Path CONFIG_DIR = FabricLoader.getInstance().getConfigDir().resolve("showplaytime");
+    private static final Path LEGACY_CONFIG_PATH = FabricLoader.getInstance().getConfigDir().resolve("timer_config.json");
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final DataStore STORE = new DataStore(CONFIG_DIR, LEGACY_CONFIG_PATH, GSON);
+    private static final Path EXPORT_PATH = CONFIG_DIR.resolve("export.json");
+    // With nothing on screen changing, time is only folded into the world state this often. It is
+    // measured in wall time and kept well below the longest step TimeKeeper counts, so a client
+    // that ticks slowly does not lose playtime to the cap.
+    private static final long IDLE_CHECKPOINT_NANOS = 2 * TimeKeeper.NANOS_PER_SECOND;
 
     private ModData data = new ModData();
     private String currentId = null;
-    private int tickCounter = 0;
-
-    private static class WorldState {
-        long playtimeSeconds = -1;
-        long timerSeconds = 0;
-        boolean timerRunning = false;
-        boolean timerBackwards = false;
-    }
-
-    private static class ModData {
-        Map<String, WorldState> worldData = new HashMap<>();
-        boolean showPlaytime = false;
-        boolean showTimer = true;
-        boolean playSounds = true;
-        List<Integer> colorList = new ArrayList<>(List.of(0xFFFFFF));
-        boolean isBold = true;
-        boolean isItalic = false;
-        boolean isUnderlined = false;
-        int yOffset = 52;
-
-        void resetVisuals() {
-            this.colorList = new ArrayList<>(List.of(0xFFFFFF));
-            this.isBold = true;
-            this.isItalic = false;
-            this.isUnderlined = false;
-            this.yOffset = 52;
-        }
-    }
+    private boolean statsImportPending = false;
+    // Another instance counted time in the current world, e.g. a second account on the same server.
+    private boolean sharedWorld = false;
+    private final StatReconciler reconciler = new StatReconciler(Clock.SYSTEM);
+    // Where to report the outcome of /playtime sync once the statistics arrive.
+    private FabricClientCommandSource syncSource = null;
+    private long lastCheckpoint = 0;
+    private final TimerSession session = new TimerSession(Clock.SYSTEM);
+    // Timer shared by a server running the mod, see PlaytimeSync.
+    private final WorldState sharedTimer = new WorldState();
+    private final TimeKeeper sharedTimeKeeper = new TimeKeeper(Clock.SYSTEM);
+    private boolean sharedTimerActive = false;
+    private final HudText hudText = new HudText();
+    // HUD lines of the shown named timers.
+    private final Map<String, HudText> timerTexts = new HashMap<>();
+    private EventLog history = null;
+    // Playtime of all worlds for /playtime total and top, built on first use.
+    private CompletableFuture<PlaytimeIndex> playtimeIndex = null;
+    private boolean showDebugHud = false;
+    private String debugLine = "";
+    private long debugLineUpdated = 0;
 
     @Override
     public void onInitializeClient() {
         loadData();
+        STORE.watch(task -> Minecraft.getInstance().execute(task), this::onWorldChanged, this::onSettingsChanged);
 
         ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
+            ClientHooks.resetPaused();
             if (client.getSingleplayerServer() != null) {
                 currentId = "local_" + client.getSingleplayerServer().getWorldData().getLevelName();
             } else if (client.getCurrentServer() != null) {
                 currentId = "server_" + client.getCurrentServer().ip.replace(":", "_");
             }
 
+            sharedWorld = false;
             if (currentId != null) {
-                data.worldData.putIfAbsent(currentId, new WorldState());
-                WorldState state = data.worldData.get(currentId);
+                WorldState state = data.worldData.computeIfAbsent(currentId, STORE::loadWorld);
+                session.join(state);
+                lastCheckpoint = Clock.SYSTEM.nanoTime();
+                indexPlaytime(currentId, state.playtimeSeconds);
+                openHistory();
 
-                if (state.playtimeSeconds == -1) {
-                    if (client.player != null && client.player.getStats() != null) {
-                        int ticksPlayed = client.player.getStats().getValue(Stats.CUSTOM.get(Stats.PLAY_TIME));
-                        state.playtimeSeconds = ticksPlayed / 20;
-                    } else {
-                        state.playtimeSeconds = 0;
-                    }
-                    saveData();
-                }
+                // The client only knows its statistics after asking for them. They are compared with the
+                // counted playtime in onStatsReceived, which also does the import for a new world.
+                reconciler.start(state);
+                if (!client.hasSingleplayerServer() || state.playtimeSeconds == -1) requestStats(client);
+                if (state.playtimeSeconds == -1) statsImportPending = true;
+                else logEvent(EventLog.Type.JOIN, null);
             }
         });
 
         ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> {
             if (currentId != null && data.worldData.containsKey(currentId)) {
-                data.worldData.get(currentId).timerRunning = false;
-                saveData();
+                advanceTime(client);
+                WorldState state = data.worldData.get(currentId);
+                if (state.timerRunning) logEvent(EventLog.Type.PAUSE, null);
+                logEvent(EventLog.Type.LEAVE, null);
+                session.leave();
+                saveWorld();
+                data.worldData.remove(currentId);
+                currentId = null;
             }
+            ClientHooks.resetPaused();
+            timerTexts.clear();
+            statsImportPending = false;
+            sharedWorld = false;
+            syncSource = null;
+            closeHistory();
+            sharedTimerActive = false;
+            STORE.flush();
+        });
+
+        ClientPlayNetworking.registerGlobalReceiver(PlaytimeSyncPayload.TYPE, (payload, context) -> onSync(context.client(), payload));
+        ClientHooks.pauseListener = this::onPauseChanged;
+        ClientHooks.statsListener = this::onStatsReceived;
+
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+            if (currentId != null && data.worldData.containsKey(currentId)) advanceTime(client);
+            saveWorld();
+            closeHistory();
+            STORE.close();
         });
 
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
-            if (client.player == null || client.isPaused() || currentId == null) return;
-            WorldState state = data.worldData.get(currentId);
-            tickCounter++;
-            if (tickCounter >= 20) {
-                if (state.playtimeSeconds < 0) state.playtimeSeconds = 0;
-                state.playtimeSeconds++;
-
-                if (state.timerRunning) {
-                    if (state.timerBackwards) {
-                        if (state.timerSeconds > 0) state.timerSeconds--;
-                        else {
-                            state.timerRunning = false;
-                            playSoundById("minecraft:entity.villager.celebrate", 1.0f);
-                            client.player.displayClientMessage(Component.translatable("text.showplaytime.timer_finished"), false);
-                        }
-                    } else {
-                        state.timerSeconds++;
-                    }
-                }
-                tickCounter = 0;
-                saveData();
-            }
+            long start = PerfStats.TICK.begin();
+            onTick(client);
+            PerfStats.TICK.end(start);
         });
 
         HudRenderCallback.EVENT.register((guiGraphics, tickDelta) -> {
-            Minecraft client = Minecraft.getInstance();
-            if (client.options.hideGui || client.player == null || currentId == null) return;
-            WorldState state = data.worldData.get(currentId);
-
-            String textToRender = "";
-            if (data.showTimer && (state.timerRunning || state.timerSeconds > 0)) {
-                textToRender = state.timerRunning ? formatRawTime(state.timerSeconds) : "paused";
-            } else if (data.showPlaytime) {
-                textToRender = formatRawTime(state.playtimeSeconds);
+            long start = PerfStats.HUD.begin();
+            renderHud(guiGraphics);
+            PerfStats.HUD.end(start);
+            if (showDebugHud) renderDebugHud(guiGraphics);
+        });
+
+        registerCommands();
+    }
+
+    private void onTick(Minecraft client) {
+        if (!session.isActive() || session.isPaused()) return;
+        WorldState state = session.state();
+        boolean busy = session.isBusy() || (sharedTimerActive && sharedTimer.timerRunning) || isHudVisible(client, state);
+        if (!busy && Clock.SYSTEM.nanoTime() - lastCheckpoint < IDLE_CHECKPOINT_NANOS) return;
+        advanceTime(client);
+    }
+
+    private boolean isHudVisible(Minecraft client, WorldState state) {
+        return !client.options.hideGui && (data.showPlaytime || (data.showTimer && (state.timerDisplaySeconds() > 0 || sharedTimerActive)));
+    }
+
+    private void advanceTime(Minecraft client) {
+        if (!session.isActive() || session.isPaused()) return;
+        lastCheckpoint = Clock.SYSTEM.nanoTime();
+        if (sharedTimerActive && sharedTimer.timerRunning && (sharedTimeKeeper.advance(sharedTimer) & TimeKeeper.TIMER_FINISHED) != 0) {
+            playSoundById("minecraft:entity.villager.celebrate", 1.0f);
+            if (client.player != null) client.player.displayClientMessage(Component.translatable("text.showplaytime.timer_finished"), false);
+        }
+        int result = session.advance(name -> {
+            logEvent(EventLog.Type.FINISH, name);
+            playSoundById("minecraft:entity.villager.celebrate", 1.0f);
+            if (client.player != null) client.player.displayClientMessage(Component.translatable("text.showplaytime.timer_named_finished", name), false);
+            saveWorld();
+        });
+        if ((result & TimeKeeper.TIMER_FINISHED) != 0) {
+            logEvent(EventLog.Type.FINISH, null);
+            playSoundById("minecraft:entity.villager.celebrate", 1.0f);
+            if (client.player != null) client.player.displayClientMessage(Component.translatable("text.showplaytime.timer_finished"), false);
+        }
+        if ((result & TimeKeeper.SECOND_PASSED) != 0) {
+            indexPlaytime(currentId, session.state().playtimeSeconds);
+            if (comparesStats(client) && reconciler.shouldRequest(session.state())) requestStats(client);
+        }
+        if (result != 0) saveWorld();
+    }
+
+    // Brings the world state up to date before a command changes the timer.
+    private WorldState activeState() {
+        advanceTime(Minecraft.getInstance());
+        return session.state();
+    }
+
+    private void onPauseChanged(boolean nowPaused) {
+        if (nowPaused) {
+            advanceTime(Minecraft.getInstance());
+            session.setPaused(true);
+            sharedTimeKeeper.stop();
+            saveWorld();
+        } else {
+            session.setPaused(false);
+            if (sharedTimerActive && sharedTimer.timerRunning) sharedTimeKeeper.start();
+        }
+    }
+
+    private void requestStats(Minecraft client) {
+        if (client.getConnection() == null) return;
+        client.getConnection().send(new ServerboundClientCommandPacket(ServerboundClientCommandPacket.Action.REQUEST_STATS));
+        reconciler.requested();
+    }
+
+    // Whether the counted playtime keeps being compared with the statistic. The statistic of a
+    // singleplayer world counts ticks and falls behind with any lag. A world another instance
+    // counted time in holds the time of several accounts, so the statistic of one of them is not
+    // its playtime. There the count wins, and the statistic is only imported into a new world or
+    // applied when /playtime sync asks for it.
+    private boolean comparesStats(Minecraft client) {
+        return !client.hasSingleplayerServer() && !sharedWorld;
+    }
+
+    // Called for every statistics packet, including the ones the statistics screen asks for.
+    private void onStatsReceived() {
+        Minecraft client = Minecraft.getInstance();
+        if (!session.isActive() || client.player == null) return;
+        if (!comparesStats(client) && !statsImportPending && syncSource == null) return;
+        WorldState state = activeState();
+        long counted = Math.max(state.playtimeSeconds, 0);
+        long countedNanos = EventLog.playtimeNanos(state);
+        long stat = client.player.getStats().getValue(Stats.CUSTOM.get(Stats.PLAY_TIME)) / 20;
+        boolean corrected = reconciler.reconcile(state, stat);
+        if (corrected) {
+            logCorrection(countedNanos);
+            indexPlaytime(currentId, state.playtimeSeconds);
+            saveWorld();
+        }
+        if (syncSource != null) {
+            if (corrected) syncSource.sendFeedback(Component.translatable("text.showplaytime.playtime_synced", TimeFormat.format(counted), TimeFormat.format(stat)));
+            else syncSource.sendFeedback(Component.translatable("text.showplaytime.playtime_in_sync", TimeFormat.format(state.playtimeSeconds)));
+            syncSource = null;
+        }
+        if (statsImportPending) {
+            statsImportPending = false;
+            logEvent(EventLog.Type.JOIN, null);
+        }
+    }
+
+    // Playtime is only taken from dedicated servers, a singleplayer world counts it here, see PlaytimeSync.
+    // It is the same statistic the client asks for, so it is compared the same way.
+    private void onSync(Minecraft client, PlaytimeSyncPayload payload) {
+        if (payload.has(PlaytimeSyncPayload.HAS_PLAYTIME) && comparesStats(client) && session.isActive()) {
+            WorldState state = activeState();
+            long countedNanos = EventLog.playtimeNanos(state);
+            if (reconciler.reconcile(state, payload.playtimeSeconds())) {
+                logCorrection(countedNanos);
+                indexPlaytime(currentId, state.playtimeSeconds);
+                saveWorld();
             }
+        }
+        if (payload.has(PlaytimeSyncPayload.HAS_TIMER)) {
+            long nanos = payload.timerMillis() * 1_000_000L;
+            sharedTimer.timerSeconds = nanos / TimeKeeper.NANOS_PER_SECOND;
+            sharedTimer.timerNanos = nanos % TimeKeeper.NANOS_PER_SECOND;
+            sharedTimer.timerRunning = payload.has(PlaytimeSyncPayload.TIMER_RUNNING);
+            sharedTimer.timerBackwards = payload.has(PlaytimeSyncPayload.TIMER_BACKWARDS);
+            sharedTimerActive = sharedTimer.timerRunning || nanos > 0;
+            if (sharedTimer.timerRunning) sharedTimeKeeper.start();
+            else sharedTimeKeeper.stop();
+        }
+    }
 
-            if (!textToRender.isEmpty()) {
-                Component finalComp = createAnimatedGradientText(textToRender);
-                int x = guiGraphics.guiWidth() / 2 - client.font.width(finalComp) / 2;
-                int y = guiGraphics.guiHeight() - data.yOffset;
-                guiGraphics.drawString(client.font, finalComp, x, y, 0xFFFFFFFF, true);
+    // Another game instance sharing the config directory changed a world, see DataStore. Runs on
+    // the client thread, like the saves it has to come between. Only the time it counted is merged,
+    // its statistic corrections stay its own, see WorldState.mergeFrom and comparesStats.
+    private void onWorldChanged(String id, WorldState base, WorldState updated) {
+        WorldState state = data.worldData.get(id);
+        if (state == null) {
+            indexPlaytime(id, updated.playtimeSeconds);
+            return;
+        }
+        if (id.equals(currentId)) advanceTime(Minecraft.getInstance());
+        long countedNanos = EventLog.playtimeNanos(state);
+        boolean timersReplaced = state.mergeFrom(base, updated);
+        if (id.equals(currentId)) {
+            // The other instance's playtime was not played in this session.
+            if (EventLog.playtimeNanos(state) != countedNanos) {
+                logCorrection(countedNanos);
+                sharedWorld = true;
             }
-        });
+            if (timersReplaced) {
+                session.reloadTimers();
+                timerTexts.clear();
+            }
+        }
+        indexPlaytime(id, state.playtimeSeconds);
+    }
 
-        registerCommands();
+    private void onSettingsChanged(ModData updated) {
+        updated.worldData = data.worldData;
+        data = updated;
+        updateHudStyle();
+    }
+
+    private void renderHud(GuiGraphics guiGraphics) {
+        Minecraft client = Minecraft.getInstance();
+        if (client.options.hideGui || client.player == null || currentId == null) return;
+        WorldState world = data.worldData.get(currentId);
+        WorldState state = world;
+        if (data.showTimer && sharedTimerActive && (sharedTimer.timerRunning || sharedTimer.timerDisplaySeconds() > 0)) state = sharedTimer;
+
+        long millis = System.currentTimeMillis();
+        int y = guiGraphics.guiHeight() - data.yOffset;
+        boolean mainLine = true;
+        if (data.showTimer && (state.timerRunning || state.timerDisplaySeconds() > 0)) {
+            if (state.timerRunning) hudText.setTime(state.timerDisplaySeconds());
+            else hudText.setText("paused");
+        } else if (data.showPlaytime) {
+            hudText.setTime(state.playtimeSeconds);
+        } else {
+            mainLine = false;
+        }
+        if (mainLine) drawLine(guiGraphics, client, hudText, millis, y);
+
+        // Shown named timers stack upwards from the main line.
+        for (Map.Entry<String, NamedTimer> entry : world.timers.entrySet()) {
+            NamedTimer timer = entry.getValue();
+            if (!timer.shown) continue;
+            HudText text = timerTexts.computeIfAbsent(entry.getKey(), this::newTimerText);
+            text.setTime(timer.displaySecondsAt(world.clockNanos));
+            y -= client.font.lineHeight + 1;
+            drawLine(guiGraphics, client, text, millis, y);
+        }
+    }
+
+    private void drawLine(GuiGraphics guiGraphics, Minecraft client, HudText text, long millis, int y) {
+        text.animate(millis);
+        int x = guiGraphics.guiWidth() / 2 - text.width(client.font) / 2;
+        guiGraphics.drawString(client.font, text, x, y, 0xFFFFFFFF, true);
+    }
+
+    private HudText newTimerText(String name) {
+        HudText text = new HudText();
+        text.setStyle(data.colorList, data.isBold, data.isItalic, data.isUnderlined);
+        text.setLabel(name + ": ");
+        return text;
+    }
+
+    private void renderDebugHud(GuiGraphics guiGraphics) {
+        Minecraft client = Minecraft.getInstance();
+        if (client.options.hideGui) return;
+        long now = System.currentTimeMillis();
+        if (now - debugLineUpdated >= 500) {
+            debugLine = PerfStats.summary();
+            debugLineUpdated = now;
+        }
+        guiGraphics.drawString(client.font, debugLine, 2, 2, 0xFFFFFFFF, true);
     }
 
     private void playSoundById(String id, float pitch) {
@@ -163,99 +385,303 @@ public class ShowPlayTime implements ClientModInitializer {
             // --- /playtime ---
             dispatcher.register(ClientCommandManager.literal("playtime")
                     .executes(c -> {
-                        long time = data.worldData.get(currentId).playtimeSeconds;
+                        long time = activeState().playtimeSeconds;
                         playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
-                        c.getSource().sendFeedback(Component.translatable("text.showplaytime.playtime_current", formatRawTime(time)));
+                        c.getSource().sendFeedback(Component.translatable("text.showplaytime.playtime_current", TimeFormat.format(time)));
                         return 1;
                     })
                     .then(ClientCommandManager.literal("show").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
                         data.showPlaytime = BoolArgumentType.getBool(c, "v");
                         playSoundById(data.showPlaytime ? "minecraft:entity.experience_orb.pickup" : "minecraft:block.note_block.bass", 1.2f);
-                        saveData();
+                        saveSettings();
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Playtime HUD", data.showPlaytime));
                         return 1;
                     })))
+                    .then(ClientCommandManager.literal("sync").executes(c -> {
+                        activeState();
+                        reconciler.force();
+                        syncSource = c.getSource();
+                        requestStats(Minecraft.getInstance());
+                        playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
+                        c.getSource().sendFeedback(Component.translatable("text.showplaytime.playtime_sync_requested"));
+                        return 1;
+                    }))
+                    .then(ClientCommandManager.literal("total").executes(c -> {
+                        showPlaytimeTotal(c.getSource(), PlaytimeIndex.Filter.ALL, 0);
+                        return 1;
+                    }))
+                    .then(ClientCommandManager.literal("top")
+                            .executes(c -> {
+                                showPlaytimeTotal(c.getSource(), PlaytimeIndex.Filter.ALL, 10);
+                                return 1;
+                            })
+                            .then(ClientCommandManager.argument("n", IntegerArgumentType.integer(1, 100)).executes(c -> {
+                                showPlaytimeTotal(c.getSource(), PlaytimeIndex.Filter.ALL, IntegerArgumentType.getInteger(c, "n"));
+                                return 1;
+                            })))
+                    .then(ClientCommandManager.literal("filter")
+                            .then(ClientCommandManager.literal("local").executes(c -> {
+                                showPlaytimeTotal(c.getSource(), PlaytimeIndex.Filter.LOCAL, 10);
+                                return 1;
+                            }))
+                            .then(ClientCommandManager.literal("server").executes(c -> {
+                                showPlaytimeTotal(c.getSource(), PlaytimeIndex.Filter.SERVER, 10);
+                                return 1;
+                            })))
+                    .then(ClientCommandManager.literal("history").executes(c -> {
+                        Path path = STORE.historyPath(currentId);
+                        CompletableFuture.supplyAsync(() -> {
+                            try {
+                                return EventLog.history(path, ZoneId.systemDefault());
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }).whenComplete((h, error) -> Minecraft.getInstance().execute(() -> {
+                            if (error != null) {
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.data_failed", error.getCause() != null ? error.getCause().getMessage() : error.getMessage()));
+                                return;
+                            }
+                            if (h.sessions == 0) {
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.history_empty"));
+                                return;
+                            }
+                            c.getSource().sendFeedback(Component.translatable("text.showplaytime.history_total", h.sessions, TimeFormat.format(h.totalNanos / TimeKeeper.NANOS_PER_SECOND)));
+                            List<LocalDate> days = new ArrayList<>(h.days.keySet());
+                            for (int i = days.size() - 1; i >= Math.max(0, days.size() - 7); i--) {
+                                long[] day = h.days.get(days.get(i));
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.history_day", days.get(i).toString(), TimeFormat.format(day[0] / TimeKeeper.NANOS_PER_SECOND), day[1]));
+                            }
+                        }));
+                        return 1;
+                    }))
+                    .then(ClientCommandManager.literal("export").executes(c -> {
+                        saveWorld();
+                        STORE.exportJson(EXPORT_PATH).whenComplete((count, error) -> Minecraft.getInstance().execute(() -> {
+                            if (error != null) {
+                                playSoundById("minecraft:block.note_block.bass", 0.5f);
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.data_failed", error.getCause() != null ? error.getCause().getMessage() : error.getMessage()));
+                                return;
+                            }
+                            playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
+                            c.getSource().sendFeedback(Component.translatable("text.showplaytime.data_exported", count, EXPORT_PATH.toString()));
+                        }));
+                        return 1;
+                    }))
+                    .then(ClientCommandManager.literal("import").executes(c -> {
+                        STORE.importJson(EXPORT_PATH).whenComplete((imported, error) -> Minecraft.getInstance().execute(() -> {
+                            if (error != null) {
+                                playSoundById("minecraft:block.note_block.bass", 0.5f);
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.data_failed", error.getCause() != null ? error.getCause().getMessage() : error.getMessage()));
+                                return;
+                            }
+                            int count = imported.worldData.size();
+                            Map<String, WorldState> loaded = data.worldData;
+                            if (session.isActive() && imported.worldData.containsKey(currentId)) {
+                                long countedNanos = EventLog.playtimeNanos(activeState());
+                                loaded.put(currentId, imported.worldData.get(currentId));
+                                session.join(loaded.get(currentId));
+                                timerTexts.clear();
+                                logCorrection(countedNanos);
+                            }
+                            playtimeIndex = null;
+                            data = imported;
+                            data.worldData = loaded;
+                            updateHudStyle();
+                            playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
+                            c.getSource().sendFeedback(Component.translatable("text.showplaytime.data_imported", count, EXPORT_PATH.toString()));
+                        }));
+                        return 1;
+                    }))
             );
 
             // --- /timer ---
             dispatcher.register(ClientCommandManager.literal("timer")
                     .then(ClientCommandManager.literal("start").executes(c -> {
-                        WorldState s = data.worldData.get(currentId);
-                        if (s.timerRunning) {
+                        activeState();
+                        if (!session.startTimer()) {
                             playSoundById("minecraft:block.note_block.bass", 0.5f);
                             c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_already_running"));
                             return 0;
                         }
-                        s.timerRunning = true;
+                        logEvent(EventLog.Type.START, null);
                         playSoundById("minecraft:entity.player.levelup", 1.0f);
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_started"));
-                        saveData();
+                        saveWorld();
                         return 1;
                     }))
                     .then(ClientCommandManager.literal("add").then(ClientCommandManager.argument("h", IntegerArgumentType.integer(0)).then(ClientCommandManager.argument("m", IntegerArgumentType.integer(0, 59)).then(ClientCommandManager.argument("s", IntegerArgumentType.integer(0, 59)).executes(c -> {
                         long toAdd = (IntegerArgumentType.getInteger(c, "h") * 3600L) + (IntegerArgumentType.getInteger(c, "m") * 60L) + IntegerArgumentType.getInteger(c, "s");
-                        data.worldData.get(currentId).timerSeconds += toAdd;
+                        activeState();
+                        session.addTimer(toAdd);
                         playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
-                        c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_added", formatRawTime(toAdd)));
-                        saveData();
+                        c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_added", TimeFormat.format(toAdd)));
+                        saveWorld();
                         return 1;
                     })))))
                     .then(ClientCommandManager.literal("set").then(ClientCommandManager.argument("h", IntegerArgumentType.integer(0)).then(ClientCommandManager.argument("m", IntegerArgumentType.integer(0, 59)).then(ClientCommandManager.argument("s", IntegerArgumentType.integer(0, 59)).executes(c -> {
-                        WorldState s = data.worldData.get(currentId);
-                        s.timerSeconds = (IntegerArgumentType.getInteger(c, "h") * 3600L) + (IntegerArgumentType.getInteger(c, "m") * 60L) + IntegerArgumentType.getInteger(c, "s");
+                        WorldState s = activeState();
+                        session.setTimer((IntegerArgumentType.getInteger(c, "h") * 3600L) + (IntegerArgumentType.getInteger(c, "m") * 60L) + IntegerArgumentType.getInteger(c, "s"));
                         playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
-                        c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_current", formatRawTime(s.timerSeconds)));
-                        saveData();
+                        c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_current", TimeFormat.format(s.timerSeconds)));
+                        saveWorld();
                         return 1;
                     })))))
                     .then(ClientCommandManager.literal("pause").executes(c -> {
-                        WorldState s = data.worldData.get(currentId);
-                        if (!s.timerRunning) {
+                        activeState();
+                        if (!session.pauseTimer()) {
                             playSoundById("minecraft:block.note_block.bass", 0.5f);
                             c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_not_running"));
                             return 0;
                         }
-                        s.timerRunning = false;
+                        logEvent(EventLog.Type.PAUSE, null);
                         playSoundById("minecraft:block.note_block.bass", 0.5f);
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_paused"));
-                        saveData();
+                        saveWorld();
                         return 1;
                     }))
                     .then(ClientCommandManager.literal("resume").executes(c -> {
-                        WorldState s = data.worldData.get(currentId);
-                        if (s.timerRunning || s.timerSeconds == 0) {
+                        activeState();
+                        if (!session.resumeTimer()) {
                             playSoundById("minecraft:block.note_block.bass", 0.5f);
                             c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_no_resume"));
                             return 0;
                         }
-                        s.timerRunning = true;
+                        logEvent(EventLog.Type.RESUME, null);
                         playSoundById("minecraft:entity.player.levelup", 1.2f);
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_resumed"));
-                        saveData();
+                        saveWorld();
                         return 1;
                     }))
                     .then(ClientCommandManager.literal("stop").executes(c -> {
-                        WorldState s = data.worldData.get(currentId);
-                        s.timerRunning = false; s.timerSeconds = 0;
+                        activeState();
+                        logEvent(EventLog.Type.STOP, null);
+                        session.stopTimer();
                         playSoundById("minecraft:block.note_block.bass", 0.5f);
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_stopped"));
-                        saveData();
+                        saveWorld();
                         return 1;
                     }))
+                    .then(ClientCommandManager.literal("split").then(ClientCommandManager.argument("name", StringArgumentType.greedyString()).executes(c -> {
+                        WorldState s = activeState();
+                        if (!s.timerRunning) {
+                            playSoundById("minecraft:block.note_block.bass", 0.5f);
+                            c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_not_active"));
+                            return 0;
+                        }
+                        String name = StringArgumentType.getString(c, "name");
+                        logEvent(EventLog.Type.SPLIT, name);
+                        playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
+                        c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_split", name, TimeFormat.format(s.timerDisplaySeconds())));
+                        return 1;
+                    })))
                     .then(ClientCommandManager.literal("backwards").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
-                        data.worldData.get(currentId).timerBackwards = BoolArgumentType.getBool(c, "v");
+                        activeState().timerBackwards = BoolArgumentType.getBool(c, "v");
                         playSoundById(data.worldData.get(currentId).timerBackwards ? "minecraft:entity.experience_orb.pickup" : "minecraft:block.note_block.bass", 1.2f);
-                        saveData();
+                        saveWorld();
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Backwards", data.worldData.get(currentId).timerBackwards));
                         return 1;
                     })))
                     .then(ClientCommandManager.literal("show").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
                         data.showTimer = BoolArgumentType.getBool(c, "v");
                         playSoundById(data.showTimer ? "minecraft:entity.experience_orb.pickup" : "minecraft:block.note_block.bass", 1.2f);
-                        saveData();
+                        saveSettings();
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Timer HUD", data.showTimer));
                         return 1;
                     })))
+                    .then(ClientCommandManager.literal("list").executes(c -> {
+                        WorldState s = activeState();
+                        if (s.timers.isEmpty()) {
+                            c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_list_empty"));
+                            return 0;
+                        }
+                        s.timers.forEach((name, timer) -> c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_list_entry", name,
+                                TimeFormat.format(timer.displaySecondsAt(s.clockNanos)), timer.backwards ? "countdown" : "stopwatch", timer.running ? "running" : "paused")));
+                        return 1;
+                    }))
+                    // Under their own literal, so a timer can have any name, including start or list.
+                    .then(ClientCommandManager.literal("named").then(ClientCommandManager.argument("name", StringArgumentType.word()).suggests((context, builder) ->
+                            session.isActive() ? SharedSuggestionProvider.suggest(session.timers().names(), builder) : builder.buildFuture())
+                            .then(ClientCommandManager.literal("countdown").then(ClientCommandManager.argument("h", IntegerArgumentType.integer(0)).then(ClientCommandManager.argument("m", IntegerArgumentType.integer(0, 59)).then(ClientCommandManager.argument("s", IntegerArgumentType.integer(0, 59)).executes(c -> {
+                                long seconds = (IntegerArgumentType.getInteger(c, "h") * 3600L) + (IntegerArgumentType.getInteger(c, "m") * 60L) + IntegerArgumentType.getInteger(c, "s");
+                                if (seconds == 0) {
+                                    playSoundById("minecraft:block.note_block.bass", 0.5f);
+                                    c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_named_zero"));
+                                    return 0;
+                                }
+                                String name = StringArgumentType.getString(c, "name");
+                                activeState();
+                                session.timers().countdown(name, seconds * TimeKeeper.NANOS_PER_SECOND);
+                                logEvent(EventLog.Type.START, name);
+                                playSoundById("minecraft:entity.player.levelup", 1.0f);
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_named_created", name, TimeFormat.format(seconds)));
+                                saveWorld();
+                                return 1;
+                            })))))
+                            .then(ClientCommandManager.literal("stopwatch").executes(c -> {
+                                String name = StringArgumentType.getString(c, "name");
+                                activeState();
+                                session.timers().stopwatch(name);
+                                logEvent(EventLog.Type.START, name);
+                                playSoundById("minecraft:entity.player.levelup", 1.0f);
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_named_created", name, TimeFormat.format(0)));
+                                saveWorld();
+                                return 1;
+                            }))
+                            .then(ClientCommandManager.literal("pause").executes(c -> namedTimerCommand(c.getSource(), StringArgumentType.getString(c, "name"),
+                                    n -> session.timers().pause(n), EventLog.Type.PAUSE, "timer_named_paused")))
+                            .then(ClientCommandManager.literal("resume").executes(c -> namedTimerCommand(c.getSource(), StringArgumentType.getString(c, "name"),
+                                    n -> session.timers().resume(n), EventLog.Type.RESUME, "timer_named_resumed")))
+                            .then(ClientCommandManager.literal("remove").executes(c -> {
+                                String name = StringArgumentType.getString(c, "name");
+                                int result = namedTimerCommand(c.getSource(), name, n -> session.timers().remove(n), EventLog.Type.STOP, "timer_named_removed");
+                                timerTexts.remove(name);
+                                return result;
+                            }))
+                            .then(ClientCommandManager.literal("show").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
+                                String name = StringArgumentType.getString(c, "name");
+                                boolean shown = BoolArgumentType.getBool(c, "v");
+                                if (!session.timers().show(name, shown)) {
+                                    playSoundById("minecraft:block.note_block.bass", 0.5f);
+                                    c.getSource().sendFeedback(Component.translatable("text.showplaytime.timer_named_missing", name));
+                                    return 0;
+                                }
+                                playSoundById(shown ? "minecraft:entity.experience_orb.pickup" : "minecraft:block.note_block.bass", 1.2f);
+                                saveWorld();
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", name + " HUD", shown));
+                                return 1;
+                            })))
+                    ))
+                    .then(ClientCommandManager.literal("debug")
+                            .then(ClientCommandManager.literal("stats").executes(c -> {
+                                if (!PerfStats.enabled) {
+                                    c.getSource().sendFeedback(Component.translatable("text.showplaytime.debug_disabled"));
+                                    return 0;
+                                }
+                                for (PerfStats.Probe probe : PerfStats.PROBES) {
+                                    c.getSource().sendFeedback(Component.translatable("text.showplaytime.debug_stats", probe.name, probe.nanos.count(),
+                                            PerfStats.formatNanos(probe.nanos.percentile(0.5)), PerfStats.formatNanos(probe.nanos.percentile(0.99)),
+                                            PerfStats.formatNanos(probe.nanos.max()), probe.allocatedPerCall() + "B"));
+                                }
+                                return 1;
+                            }))
+                            .then(ClientCommandManager.literal("record").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
+                                PerfStats.enabled = BoolArgumentType.getBool(c, "v");
+                                if (!PerfStats.enabled) showDebugHud = false;
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Debug Recording", PerfStats.enabled));
+                                return 1;
+                            })))
+                            .then(ClientCommandManager.literal("hud").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
+                                showDebugHud = BoolArgumentType.getBool(c, "v");
+                                if (showDebugHud) PerfStats.enabled = true;
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Debug HUD", showDebugHud));
+                                return 1;
+                            })))
+                            .then(ClientCommandManager.literal("reset").executes(c -> {
+                                PerfStats.reset();
+                                c.getSource().sendFeedback(Component.translatable("text.showplaytime.debug_reset"));
+                                return 1;
+                            }))
+                    )
             );
 
             // --- /timerlook ---
@@ -263,42 +689,46 @@ public class ShowPlayTime implements ClientModInitializer {
                     .then(ClientCommandManager.literal("reset").executes(c -> {
                         data.resetVisuals();
                         playSoundById("minecraft:block.note_block.bass", 0.5f);
-                        saveData();
+                        updateHudStyle();
+                        saveSettings();
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.look_reset"));
                         return 1;
                     }))
                     .then(ClientCommandManager.literal("bold").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
                         data.isBold = BoolArgumentType.getBool(c, "v");
                         playSoundById(data.isBold ? "minecraft:entity.experience_orb.pickup" : "minecraft:block.note_block.bass", 1.2f);
-                        saveData();
+                        updateHudStyle();
+                        saveSettings();
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Bold", data.isBold));
                         return 1;
                     })))
                     .then(ClientCommandManager.literal("italic").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
                         data.isItalic = BoolArgumentType.getBool(c, "v");
                         playSoundById(data.isItalic ? "minecraft:entity.experience_orb.pickup" : "minecraft:block.note_block.bass", 1.2f);
-                        saveData();
+                        updateHudStyle();
+                        saveSettings();
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Italic", data.isItalic));
                         return 1;
                     })))
                     .then(ClientCommandManager.literal("underlined").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
                         data.isUnderlined = BoolArgumentType.getBool(c, "v");
                         playSoundById(data.isUnderlined ? "minecraft:entity.experience_orb.pickup" : "minecraft:block.note_block.bass", 1.2f);
-                        saveData();
+                        updateHudStyle();
+                        saveSettings();
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Underlined", data.isUnderlined));
                         return 1;
                     })))
                     .then(ClientCommandManager.literal("ypos").then(ClientCommandManager.argument("v", IntegerArgumentType.integer(0, 1000)).executes(c -> {
                         data.yOffset = IntegerArgumentType.getInteger(c, "v");
                         playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
-                        saveData();
+                        saveSettings();
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Y-Offset", data.yOffset));
                         return 1;
                     })))
                     .then(ClientCommandManager.literal("mutesound").then(ClientCommandManager.argument("v", BoolArgumentType.bool()).executes(c -> {
                         data.playSounds = !BoolArgumentType.getBool(c, "v");
                         playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
-                        saveData();
+                        saveSettings();
                         c.getSource().sendFeedback(Component.translatable("text.showplaytime.config_updated", "Mute Sounds", !data.playSounds));
                         return 1;
                     })))
@@ -309,7 +739,8 @@ public class ShowPlayTime implements ClientModInitializer {
                                 if (cf.getColor() != null) {
                                     data.colorList.add(cf.getColor());
                                     playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
-                                    saveData();
+                                    updateHudStyle();
+                                    saveSettings();
                                     c.getSource().sendFeedback(Component.translatable("text.showplaytime.color_added", cf.getName()));
                                 }
                                 return 1;
@@ -325,14 +756,16 @@ public class ShowPlayTime implements ClientModInitializer {
                                 data.colorList.remove(cf.getColor());
                                 if (data.colorList.isEmpty()) data.colorList.add(0xFFFFFF);
                                 playSoundById("minecraft:block.note_block.bass", 0.5f);
-                                saveData();
+                                updateHudStyle();
+                                saveSettings();
                                 c.getSource().sendFeedback(Component.translatable("text.showplaytime.color_removed", cf.getName()));
                                 return 1;
                             })))
                             .then(ClientCommandManager.literal("clear").executes(c -> {
                                 data.colorList = new ArrayList<>(List.of(0xFFFFFF));
                                 playSoundById("minecraft:block.note_block.bass", 0.5f);
-                                saveData();
+                                updateHudStyle();
+                                saveSettings();
                                 c.getSource().sendFeedback(Component.translatable("text.showplaytime.color_cleared"));
                                 return 1;
                             }))
@@ -341,33 +774,115 @@ public class ShowPlayTime implements ClientModInitializer {
         });
     }
 
-    private String formatRawTime(long t) {
-        if (t <= 0) return "0s";
-        long y = t / 31536000, M = (t % 31536000) / 2592000, w = (t % 2592000) / 604800, d = (t % 604800) / 86400, h = (t % 86400) / 3600, m = (t % 3600) / 60, s = t % 60;
-        StringBuilder sb = new StringBuilder();
-        if (y > 0) sb.append(y).append("y "); if (M > 0) sb.append(M).append("M "); if (w > 0) sb.append(w).append("w "); if (d > 0) sb.append(d).append("d "); if (h > 0) sb.append(h).append("h "); if (m > 0) sb.append(m).append("m "); if (s > 0) sb.append(s).append("s");
-        return sb.toString().trim();
+    // Sends the total playtime of the worlds matching filter, followed by the top ones.
+    private void showPlaytimeTotal(FabricClientCommandSource source, PlaytimeIndex.Filter filter, int top) {
+        activeState();
+        playtimeIndex().whenComplete((index, error) -> Minecraft.getInstance().execute(() -> {
+            if (error != null) {
+                playtimeIndex = null;
+                source.sendFeedback(Component.translatable("text.showplaytime.data_failed", error.getCause() != null ? error.getCause().getMessage() : error.getMessage()));
+                return;
+            }
+            if (index.count(filter) == 0) {
+                source.sendFeedback(Component.translatable("text.showplaytime.playtime_none"));
+                return;
+            }
+            playSoundById("minecraft:entity.experience_orb.pickup", 1.2f);
+            source.sendFeedback(Component.translatable("text.showplaytime.playtime_total", TimeFormat.format(index.total(filter)), index.count(filter)));
+            List<PlaytimeIndex.Entry> entries = index.top(filter, top);
+            for (int i = 0; i < entries.size(); i++) {
+                String id = entries.get(i).id();
+                String name = id.startsWith("local_") ? id.substring(6) : id.startsWith("server_") ? id.substring(7) : id;
+                source.sendFeedback(Component.translatable("text.showplaytime.playtime_top_entry", i + 1, name, TimeFormat.format(entries.get(i).seconds())));
+            }
+        }));
     }
 
-    private Component createAnimatedGradientText(String text) {
-        MutableComponent res = Component.empty();
-        double offset = (System.currentTimeMillis() % 3000L) / 3000.0;
-        for (int i = 0; i < text.length(); i++) {
-            int color = interpolateColors(data.colorList, (float)(((float)i/text.length() + offset) % 1.0));
-            res.append(Component.literal(String.valueOf(text.charAt(i))).withStyle(Style.EMPTY.withColor(TextColor.fromRgb(color)).withBold(data.isBold).withItalic(data.isItalic).withUnderlined(data.isUnderlined)));
+    // Built from the world files on first use, then kept up to date by indexPlaytime. Completes on
+    // the client thread, which is the only one touching the index.
+    private CompletableFuture<PlaytimeIndex> playtimeIndex() {
+        if (playtimeIndex == null) {
+            playtimeIndex = STORE.scanPlaytimes().thenApplyAsync(scanned -> {
+                PlaytimeIndex index = new PlaytimeIndex();
+                scanned.forEach(index::update);
+                data.worldData.forEach((id, state) -> index.update(id, state.playtimeSeconds));
+                return index;
+            }, Minecraft.getInstance());
         }
-        return res;
+        return playtimeIndex;
+    }
+
+    private void indexPlaytime(String id, long seconds) {
+        if (playtimeIndex != null && playtimeIndex.isDone() && !playtimeIndex.isCompletedExceptionally()) playtimeIndex.join().update(id, seconds);
     }
 
-    private int interpolateColors(List<Integer> colors, float ratio) {
-        if (colors.size() == 1) return colors.get(0);
-        float section = ratio * colors.size();
-        int i = (int)section % colors.size(), next = (i+1) % colors.size();
-        float t = section - (int)section;
-        int c1 = colors.get(i), c2 = colors.get(next);
-        return ((int)(((c1>>16)&0xFF)*(1-t)+((c2>>16)&0xFF)*t)<<16) | ((int)(((c1>>8)&0xFF)*(1-t)+((c2>>8)&0xFF)*t)<<8) | (int)((c1&0xFF)*(1-t)+(c2&0xFF)*t);
+    // Pause, resume and remove of a named timer only differ in the registry call and the feedback.
+    private int namedTimerCommand(FabricClientCommandSource source, String name, Predicate<String> action, EventLog.Type type, String key) {
+        activeState();
+        if (!action.test(name)) {
+            playSoundById("minecraft:block.note_block.bass", 0.5f);
+            if (session.timers().get(name) == null) source.sendFeedback(Component.translatable("text.showplaytime.timer_named_missing", name));
+            else source.sendFeedback(Component.translatable(type == EventLog.Type.PAUSE ? "text.showplaytime.timer_not_running" : "text.showplaytime.timer_no_resume"));
+            return 0;
+        }
+        logEvent(type, name);
+        playSoundById(type == EventLog.Type.RESUME ? "minecraft:entity.player.levelup" : "minecraft:block.note_block.bass", type == EventLog.Type.RESUME ? 1.2f : 0.5f);
+        source.sendFeedback(Component.translatable("text.showplaytime." + key, name));
+        saveWorld();
+        return 1;
     }
 
-    private void loadData() { try { if (Files.exists(CONFIG_PATH)) { try (Reader r = Files.newBufferedReader(CONFIG_PATH)) { data = GSON.fromJson(r, ModData.class); if(data==null) data=new ModData(); } } } catch (Exception e) {} }
-    private void saveData() { try { Files.createDirectories(CONFIG_PATH.getParent()); try (Writer w = Files.newBufferedWriter(CONFIG_PATH)) { GSON.toJson(data, w); } } catch (Exception e) {} }
+    private void loadData() {
+        data = STORE.loadSettings();
+        updateHudStyle();
+    }
+
+    private void openHistory() {
+        closeHistory();
+        try {
+            history = EventLog.open(STORE.historyPath(currentId));
+        } catch (IOException e) {
+            LOGGER.error("Failed to open the event log of {}", currentId, e);
+        }
+    }
+
+    private void closeHistory() {
+        if (history == null) return;
+        try {
+            history.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close the event log", e);
+        }
+        history = null;
+    }
+
+    private void logEvent(EventLog.Type type, String name) {
+        if (history == null || currentId == null || !data.worldData.containsKey(currentId)) return;
+        try {
+            history.append(type, data.worldData.get(currentId), name);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to append to the event log, disabling it for this session", e);
+            closeHistory();
+        }
+    }
+
+    // Playtime was replaced instead of counted, the history leaves the jump out of the session.
+    private void logCorrection(long previousNanos) {
+        if (history == null || currentId == null || !data.worldData.containsKey(currentId)) return;
+        try {
+            history.appendCorrection(data.worldData.get(currentId), previousNanos);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to append to the event log, disabling it for this session", e);
+            closeHistory();
+        }
+    }
+
+    private void updateHudStyle() {
+        hudText.setStyle(data.colorList, data.isBold, data.isItalic, data.isUnderlined);
+        for (HudText text : timerTexts.values()) text.setStyle(data.colorList, data.isBold, data.isItalic, data.isUnderlined);
+    }
+
+    private void saveSettings() { STORE.saveSettings(data); }
+
+    private void saveWorld() { if (currentId != null && data.worldData.containsKey(currentId)) STORE.saveWorld(currentId, data.worldData.get(currentId)); }
 }
\ No newline at end of file
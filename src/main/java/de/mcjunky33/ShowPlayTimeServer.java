@@ -0,0 +1,75 @@
+package de.mcjunky33;
+
+import com.mojang.brigadier.arguments.BoolArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import de.mcjunky33.core.TimeFormat;
+import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+
+/**
+ * Common entrypoint. Registers the sync payload and, on any logical server, keeps connected
+ * clients that have the mod in sync with the authoritative playtime and the shared timer.
+ */
+public class ShowPlayTimeServer implements ModInitializer {
+
+    private final PlaytimeSync sync = new PlaytimeSync();
+
+    @Override
+    public void onInitialize() {
+        PayloadTypeRegistry.playS2C().register(PlaytimeSyncPayload.TYPE, PlaytimeSyncPayload.CODEC);
+
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> sync.onJoin(handler.getPlayer(), server));
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> sync.onLeave(handler.getPlayer()));
+        ServerTickEvents.END_SERVER_TICK.register(sync::onTick);
+
+        registerCommands();
+    }
+
+    private void registerCommands() {
+        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
+
+            // --- /sharedtimer ---
+            dispatcher.register(Commands.literal("sharedtimer").requires(s -> s.hasPermission(2))
+                    .then(Commands.literal("start").executes(c -> {
+                        sync.sharedTimer.timerRunning = true;
+                        sync.timerChanged();
+                        c.getSource().sendSuccess(() -> Component.translatableWithFallback("text.showplaytime.timer_started", "[Timer] Started!"), true);
+                        return 1;
+                    }))
+                    .then(Commands.literal("pause").executes(c -> {
+                        sync.sharedTimer.timerRunning = false;
+                        sync.timerChanged();
+                        c.getSource().sendSuccess(() -> Component.translatableWithFallback("text.showplaytime.timer_paused", "[Timer] Paused."), true);
+                        return 1;
+                    }))
+                    .then(Commands.literal("stop").executes(c -> {
+                        sync.sharedTimer.timerRunning = false;
+                        sync.sharedTimer.resetTimer();
+                        sync.timerChanged();
+                        c.getSource().sendSuccess(() -> Component.translatableWithFallback("text.showplaytime.timer_stopped", "[Timer] Stopped & Reset."), true);
+                        return 1;
+                    }))
+                    .then(Commands.literal("set").then(Commands.argument("h", IntegerArgumentType.integer(0)).then(Commands.argument("m", IntegerArgumentType.integer(0, 59)).then(Commands.argument("s", IntegerArgumentType.integer(0, 59)).executes(c -> {
+                        sync.sharedTimer.timerNanos = 0;
+                        sync.sharedTimer.timerSeconds = (IntegerArgumentType.getInteger(c, "h") * 3600L) + (IntegerArgumentType.getInteger(c, "m") * 60L) + IntegerArgumentType.getInteger(c, "s");
+                        sync.timerChanged();
+                        String time = TimeFormat.format(sync.sharedTimer.timerSeconds);
+                        c.getSource().sendSuccess(() -> Component.translatableWithFallback("text.showplaytime.timer_current", "[Timer] Current time: %s", time), true);
+                        return 1;
+                    })))))
+                    .then(Commands.literal("backwards").then(Commands.argument("v", BoolArgumentType.bool()).executes(c -> {
+                        sync.sharedTimer.timerBackwards = BoolArgumentType.getBool(c, "v");
+                        sync.timerChanged();
+                        boolean v = sync.sharedTimer.timerBackwards;
+                        c.getSource().sendSuccess(() -> Component.translatableWithFallback("text.showplaytime.config_updated", "[Config] %s set to: %s", "Backwards", v), true);
+                        return 1;
+                    })))
+            );
+        });
+    }
+}
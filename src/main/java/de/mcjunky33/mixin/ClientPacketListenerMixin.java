@@ -0,0 +1,17 @@
+package de.mcjunky33.mixin;
+
+import de.mcjunky33.ClientHooks;
+import net.minecraft.client.multiplayer.ClientPacketListener;
+import net.minecraft.network.protocol.game.ClientboundAwardStatsPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ClientPacketListener.class)
+public class ClientPacketListenerMixin {
+	@Inject(at = @At("TAIL"), method = "handleAwardStats")
+	private void showplaytime$onAwardStats(ClientboundAwardStatsPacket packet, CallbackInfo info) {
+		ClientHooks.statsReceived();
+	}
+}
@@ -0,0 +1,17 @@
+package de.mcjunky33.mixin;
+
+import de.mcjunky33.ClientHooks;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.screens.Screen;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(Minecraft.class)
+public class MinecraftMixin {
+	@Inject(at = @At("TAIL"), method = "setScreen")
+	private void showplaytime$onSetScreen(Screen screen, CallbackInfo info) {
+		ClientHooks.screenChanged((Minecraft) (Object) this, screen);
+	}
+}